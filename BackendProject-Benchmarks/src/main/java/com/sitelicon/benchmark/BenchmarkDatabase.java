@@ -0,0 +1,115 @@
+package com.sitelicon.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.sitelicon.BackendProjectServerApplication;
+
+/**
+ * Spring context of the server, without the web server, started on a temporary
+ * SQLite file.
+ * <p>
+ * Filling a database with a million rows takes longer than most benchmarks, so
+ * every data set is created once as a template in {@code target/benchmark-data}
+ * and copied to a new temporary file for every trial. Delete that folder to
+ * create them again after changing the schema.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+	private static final Path TEMPLATES = Path.of("target", "benchmark-data");
+
+	/**
+	 * Number of rows created per transaction while filling a template.
+	 */
+	static final int SEED_CHUNK_SIZE = 10_000;
+
+	private final Path file;
+	private final ConfigurableApplicationContext context;
+
+	private BenchmarkDatabase(Path file, ConfigurableApplicationContext context) {
+		this.file = file;
+		this.context = context;
+	}
+
+	/**
+	 * Starts the context on a copy of the named template, creating it first if it
+	 * doesn't exist yet.
+	 *
+	 * @param template Name of the template, which must identify the data it has.
+	 * @param profile  Profile of the server to benchmark, such as
+	 *                 {@code sqlite-perf}. The templates are always filled with
+	 *                 the default one.
+	 * @param seed     Fills the template through the context started on it.
+	 * @return The started context.
+	 */
+	static BenchmarkDatabase start(String template, String profile, Consumer<ConfigurableApplicationContext> seed)
+			throws IOException {
+		Path source = TEMPLATES.resolve(template + ".db");
+		if (Files.notExists(source)) {
+			Files.createDirectories(TEMPLATES);
+			Path partial = TEMPLATES.resolve(template + ".db.partial");
+			Files.deleteIfExists(partial);
+			try (ConfigurableApplicationContext context = run(partial, "default")) {
+				seed.accept(context);
+			}
+			Files.move(partial, source, StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		Path file = Files.createTempFile("benchmark-", ".db");
+		Files.copy(source, file, StandardCopyOption.REPLACE_EXISTING);
+		return new BenchmarkDatabase(file, run(file, profile));
+	}
+
+	<T> T getBean(Class<T> type) {
+		return context.getBean(type);
+	}
+
+	/**
+	 * Splits a number of rows in the chunks created per transaction while filling
+	 * a template.
+	 *
+	 * @param rows The number of rows.
+	 * @return The size of every chunk.
+	 */
+	static List<Integer> chunks(int rows) {
+		List<Integer> chunks = new ArrayList<>();
+		for (int from = 0; from < rows; from += SEED_CHUNK_SIZE) {
+			chunks.add(Math.min(SEED_CHUNK_SIZE, rows - from));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Closes the context, which saves the pending statistics and closes the
+	 * connections, and deletes the temporary file.
+	 */
+	@Override
+	public void close() throws IOException {
+		context.close();
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(Path.of(file + "-wal"));
+		Files.deleteIfExists(Path.of(file + "-shm"));
+	}
+
+	/**
+	 * Starts the context on the given file. The settings are passed as
+	 * command-line arguments so they take precedence over the ones in
+	 * {@code application.properties}.
+	 */
+	private static ConfigurableApplicationContext run(Path file, String profile) {
+		return new SpringApplicationBuilder(BackendProjectServerApplication.class).web(WebApplicationType.NONE)
+				.bannerMode(Banner.Mode.OFF)
+				.run("--spring.datasource.url=jdbc:sqlite:" + file, "--spring.profiles.active=" + profile,
+						"--spring.jpa.properties.hibernate.generate_statistics=false", "--logging.level.root=WARN");
+	}
+}
@@ -0,0 +1,39 @@
+package com.sitelicon.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes their results as JSON to
+ * {@code target/jmh/result-<date>.json}, so the results of different runs can be
+ * compared.
+ * <p>
+ * It accepts the usual JMH options, for example
+ * {@code mvn package exec:exec -Dbenchmark.args="UserServiceBenchmark -p rows=1000"}
+ * runs only the user benchmarks with a thousand users. An explicit
+ * {@code -rff} option replaces the default results file.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		Path results = Path.of("target", "jmh",
+				"result-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+		Files.createDirectories(results.getParent());
+
+		Options options = new OptionsBuilder().parent(commandLine).resultFormat(ResultFormatType.JSON)
+				.result(commandLine.getResult().orElse(results.toString())).build();
+		new Runner(options).run();
+	}
+}
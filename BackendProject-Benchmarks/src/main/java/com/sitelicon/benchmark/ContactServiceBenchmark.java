@@ -0,0 +1,143 @@
+package com.sitelicon.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitelicon.exceptions.ContactNotFound;
+import com.sitelicon.exceptions.VersionMismatch;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.service.ContactService;
+
+/**
+ * Benchmarks of the updates and deletes of {@link ContactService} on databases
+ * with 1k, 100k and 1M contacts.
+ * <p>
+ * The updates pick a random contact in the benchmark method itself, as that
+ * costs nothing next to the update. The deletes are measured in invocations of
+ * {@value #DELETES_PER_INVOCATION}, and the deleted contacts are created again
+ * after every invocation, outside of the measured time, so the size of the
+ * database stays the same during the whole trial. Fixtures run around every
+ * single delete would take as long as the delete itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ContactServiceBenchmark {
+
+	/**
+	 * Number of contacts deleted by every invocation of {@link #deleteContact}.
+	 */
+	private static final int DELETES_PER_INVOCATION = 100;
+
+	@Param({ "1000", "100000", "1000000" })
+	private int rows;
+
+	/**
+	 * Profile of the server to benchmark, to compare the SQLite settings. Run
+	 * with {@code -p profile=default,sqlite-perf} to benchmark both.
+	 */
+	@Param({ "default" })
+	private String profile;
+
+	private BenchmarkDatabase database;
+	private ContactService contactService;
+	private long[] ids;
+
+	@Setup(Level.Trial)
+	public void start() throws IOException {
+		database = BenchmarkDatabase.start("contacts-" + rows, profile, context -> {
+			ContactService service = context.getBean(ContactService.class);
+			for (int chunk : BenchmarkDatabase.chunks(rows)) {
+				service.createContacts(IntStream.range(0, chunk).mapToObj(i -> newContact()).toList());
+			}
+		});
+		contactService = database.getBean(ContactService.class);
+
+		List<Long> all = new ArrayList<>(rows);
+		contactService.exportContacts(contact -> all.add(contact.getId()));
+		ids = all.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws IOException {
+		database.close();
+	}
+
+	@Benchmark
+	public Contact updateContact() throws ContactNotFound, VersionMismatch {
+		return contactService.updateContact(ids[ThreadLocalRandom.current().nextInt(ids.length)], newContact(), null);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(DELETES_PER_INVOCATION)
+	public void deleteContact(DeletedContacts deleted) throws ContactNotFound, VersionMismatch {
+		for (int position : deleted.positions) {
+			contactService.deleteContact(ids[position], null);
+		}
+	}
+
+	/**
+	 * Contacts deleted by an invocation of {@link #deleteContact}. Every
+	 * invocation deletes {@value #DELETES_PER_INVOCATION} of them, so it lasts
+	 * long enough for these fixtures not to distort the time measured.
+	 */
+	@State(Scope.Benchmark)
+	public static class DeletedContacts {
+
+		/**
+		 * Positions in {@link ContactServiceBenchmark#ids} of the contacts deleted by
+		 * the next invocation.
+		 */
+		private int[] positions;
+
+		@Setup(Level.Invocation)
+		public void pick(ContactServiceBenchmark benchmark) {
+			positions = ThreadLocalRandom.current().ints(0, benchmark.ids.length).distinct()
+					.limit(DELETES_PER_INVOCATION).toArray();
+		}
+
+		/**
+		 * Creates again the contacts deleted by the last invocation, in a single
+		 * transaction.
+		 */
+		@TearDown(Level.Invocation)
+		public void replace(ContactServiceBenchmark benchmark) {
+			List<Long> created = benchmark.contactService
+					.createContacts(IntStream.range(0, positions.length).mapToObj(i -> newContact()).toList());
+			for (int i = 0; i < positions.length; i++) {
+				benchmark.ids[positions[i]] = created.get(i);
+			}
+		}
+	}
+
+	private static Contact newContact() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int n = random.nextInt(1_000_000);
+		Reason[] reasons = Reason.values();
+		return new Contact("Contact " + n, "contact" + n + "@example.com", reasons[random.nextInt(reasons.length)],
+				"Benchmark message " + n);
+	}
+}
@@ -0,0 +1,80 @@
+package com.sitelicon.benchmark;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.model.User;
+
+/**
+ * Benchmarks of the serialization to JSON of lists of users and contacts, with
+ * an {@link ObjectMapper} configured as the one of the server, without a
+ * database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SerializationBenchmark {
+
+	@Param({ "100", "1000" })
+	private int size;
+
+	private ObjectMapper objectMapper;
+	private List<User> users;
+	private List<Contact> contacts;
+
+	@Setup(Level.Trial)
+	public void create() {
+		objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		Reason[] reasons = Reason.values();
+
+		users = IntStream.range(0, size).mapToObj(i -> {
+			User user = new User("Benchmark", "User " + i, "600000000", "user" + i + "@example.com", "password");
+			user.setId((long) i);
+			user.setTimestamp(now);
+			user.setVersion(0L);
+			return user;
+		}).toList();
+		contacts = IntStream.range(0, size).mapToObj(i -> {
+			Contact contact = new Contact("Contact " + i, "contact" + i + "@example.com", reasons[i % reasons.length],
+					"Benchmark message " + i);
+			contact.setId((long) i);
+			contact.setTimestamp(now);
+			contact.setVersion(0L);
+			return contact;
+		}).toList();
+	}
+
+	@Benchmark
+	public byte[] serializeUsers() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(users);
+	}
+
+	@Benchmark
+	public byte[] serializeContacts() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(contacts);
+	}
+}
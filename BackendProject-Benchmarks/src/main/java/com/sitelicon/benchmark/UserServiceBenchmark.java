@@ -0,0 +1,121 @@
+package com.sitelicon.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import com.sitelicon.dto.ListView;
+import com.sitelicon.exceptions.UserNotFound;
+import com.sitelicon.model.User;
+import com.sitelicon.service.UserService;
+
+/**
+ * Benchmarks of {@link UserService} on databases with 1k, 100k and 1M users.
+ * <p>
+ * The users are looked up by random IDs through the {@code users} cache, which
+ * keeps up to 10,000 users. With 1k users every lookup is a hit after the
+ * warmup, so {@link #getUserById} measures the cache rather than the database,
+ * and with the larger databases most lookups are misses. To measure the
+ * database on every size, {@link #getUserByIdUncached} evicts the user before
+ * looking it up. Reading all the users goes through
+ * {@link UserService#exportUsers}, which is what the export endpoint uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserServiceBenchmark {
+
+	@Param({ "1000", "100000", "1000000" })
+	private int rows;
+
+	/**
+	 * Profile of the server to benchmark, to compare the SQLite settings. Run
+	 * with {@code -p profile=default,sqlite-perf} to benchmark both.
+	 */
+	@Param({ "default" })
+	private String profile;
+
+	private BenchmarkDatabase database;
+	private UserService userService;
+	private Cache users;
+	private long[] ids;
+
+	@Setup(Level.Trial)
+	public void start() throws IOException {
+		database = BenchmarkDatabase.start("users-" + rows, profile, context -> {
+			UserService service = context.getBean(UserService.class);
+			for (int chunk : BenchmarkDatabase.chunks(rows)) {
+				service.createUsers(IntStream.range(0, chunk).mapToObj(i -> newUser()).toList());
+			}
+		});
+		userService = database.getBean(UserService.class);
+		users = database.getBean(CacheManager.class).getCache("users");
+
+		List<Long> all = new ArrayList<>(rows);
+		userService.exportUsers(user -> all.add(user.getId()));
+		ids = all.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws IOException {
+		database.close();
+	}
+
+	@Benchmark
+	public User createUser() {
+		User user = newUser();
+		userService.createUser(user);
+		return user;
+	}
+
+	@Benchmark
+	public User getUserById() throws UserNotFound {
+		return userService.getUserById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	@Benchmark
+	public User getUserByIdUncached() throws UserNotFound {
+		long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+		users.evict(id);
+		return userService.getUserById(id);
+	}
+
+	@Benchmark
+	public Object getUsersPage() {
+		return userService.getUsersPage(ids[ThreadLocalRandom.current().nextInt(ids.length)], 100, ListView.FULL);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void getAllUsers(Blackhole blackhole) {
+		userService.exportUsers(blackhole::consume);
+	}
+
+	private static User newUser() {
+		int n = ThreadLocalRandom.current().nextInt(1_000_000);
+		return new User("Benchmark", "User " + n, "600000000", "user" + n + "@example.com", "password");
+	}
+}
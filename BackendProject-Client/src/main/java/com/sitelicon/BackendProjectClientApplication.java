@@ -1,12 +1,54 @@
 package com.sitelicon;
 
+import java.nio.file.Path;
+import java.util.Arrays;
+
 import com.sitelicon.core.Client;
+import com.sitelicon.core.ScriptRunner;
+import com.sitelicon.load.ConnectionBenchmark;
+import com.sitelicon.load.LoadTest;
+import com.sitelicon.load.LoadTestSettings;
 
 public class BackendProjectClientApplication {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("--load-test")) {
+			new LoadTest(LoadTestSettings.parse(Arrays.copyOfRange(args, 1, args.length))).run();
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--connection-benchmark")) {
+			ConnectionBenchmark.run(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--script")) {
+			runScript(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		Client client = new Client();
 		client.run();
 	}
 
+	/**
+	 * Runs a script without the interactive menus. The arguments are the file of
+	 * the script, or {@code -} or nothing to read it from the standard input, and
+	 * optionally {@code --workers} with the number of commands run at the same
+	 * time (8 by default). The process exits with status 1 if any command failed.
+	 *
+	 * @see ScriptRunner
+	 */
+	private static void runScript(String[] args) throws Exception {
+		Path script = null;
+		int workers = 8;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--workers") && i + 1 < args.length) {
+				workers = Integer.parseInt(args[++i]);
+			} else if (!args[i].equals("-")) {
+				script = Path.of(args[i]);
+			}
+		}
+		if (new ScriptRunner(workers).run(script) > 0) {
+			System.exit(1);
+		}
+	}
+
 }
@@ -1,10 +1,13 @@
 package com.sitelicon.api;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.sitelicon.dto.ContactDTO;
 
@@ -15,7 +18,27 @@ import com.sitelicon.dto.ContactDTO;
  *
  * <p>
  * The base URL for contact-related API endpoints is defined in the {@link #URL}
- * constant. The class uses Gson for JSON serialization and deserialization.
+ * constant. The class uses the Gson instance shared by the API services for
+ * JSON serialization and deserialization.
+ *
+ * <p>
+ * Every operation has an asynchronous version, such as
+ * {@link #findContactByIdAsync(long)}, that returns a {@link CompletableFuture}
+ * instead of waiting for the response. The futures complete exceptionally with
+ * the same exceptions thrown by the blocking versions, such as
+ * {@link com.sitelicon.exceptions.NotFoundException}, and cancelling them
+ * cancels the request.
+ *
+ * <p>
+ * When the {@link ResponseCache} is enabled, the contacts found by ID are cached
+ * and revalidated with their entity tag on the next lookups, so an unchanged
+ * contact costs a 304 (Not Modified) response without body. Updating or deleting a
+ * contact through this class removes it from the cache.
+ *
+ * <p>
+ * The blocking lookups are coalesced with {@link SingleFlight}: when several
+ * threads look up the same contact, or all the contacts, at the same time, a
+ * single request is sent and they all get the same result.
  * 
  * @see ApiService
  */
@@ -25,6 +48,12 @@ public class ApiContactService extends ApiService {
 	 */
 	private final String URL = super.URL + "/contacts";
 
+	/**
+	 * The type of a list of {@link ContactDTO} objects, for Gson.
+	 */
+	private static final Type CONTACT_LIST = new TypeToken<List<ContactDTO>>() {
+	}.getType();
+
 	/**
 	 * Retrieves contact information by ID from the API.
 	 *
@@ -33,28 +62,68 @@ public class ApiContactService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public ContactDTO findContactById(long id) throws Exception {
-		String body = connection.doGet(URL + "/" + id);
-		Gson gson = new Gson();
+		String url = URL + "/" + id;
+		return singleFlight.execute(url, () -> GSON.fromJson(connection.doGet(url, cache), ContactDTO.class));
+	}
 
-		ContactDTO contactDTO = gson.fromJson(body, ContactDTO.class);
-		return contactDTO;
+	/**
+	 * Retrieves contact information by ID from the API along with its entity
+	 * tag, to update it with {@link #updateContactAsync(ContactDTO, String)} only
+	 * if it hasn't changed in between. The contact isn't shared with other
+	 * lookups, so it can be modified.
+	 *
+	 * @param id The numeric ID of the contact to retrieve.
+	 * @return The {@link ContactDTO} object representing the contact, and its
+	 *         entity tag.
+	 * @throws Exception If an error occurs during the API request.
+	 */
+	public Tagged<ContactDTO> findTaggedContactById(long id) throws Exception {
+		return findTagged(URL + "/" + id, ContactDTO.class);
 	}
 
 	/**
-	 * Retrieves information about all contacts from the API.
+	 * Retrieves information about all contacts from the export endpoint of the
+	 * API, which returns them in a single response instead of a page at a time.
 	 *
 	 * @return A list of {@link ContactDTO} objects representing all contacts.
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public List<ContactDTO> obtainAllContacts() throws Exception {
-		String body = connection.doGet(URL);
-		Gson gson = new Gson();
+		String url = URL + "/export";
+		return singleFlight.execute(url, () -> {
+			try (InputStream body = connection.doGetStream(url)) {
+				return GSON.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8), CONTACT_LIST);
+			}
+		});
+	}
 
-		Type listType = new TypeToken<List<ContactDTO>>() {
-		}.getType();
+	/**
+	 * Returns the contacts of the API, fetched a page at a time as they are
+	 * iterated. The next page is requested in the background while the current
+	 * one is being used, so the first contacts are available without waiting for
+	 * the rest.
+	 *
+	 * @param pageSize The number of contacts requested per page. The server caps
+	 *                 it to its maximum.
+	 * @return Iterable of {@link ContactDTO} objects ordered by ID.
+	 * @see PagedIterable
+	 */
+	public PagedIterable<ContactDTO> iterateContacts(int pageSize) {
+		return new PagedIterable<>(connection, URL, pageSize, CONTACT_LIST);
+	}
 
-		List<ContactDTO> contacts = gson.fromJson(body, listType);
-		return contacts;
+	/**
+	 * Retrieves all the contacts from the export endpoint of the API, decoding
+	 * every contact as it is received instead of reading the whole response
+	 * first. Only the contact being decoded is kept in memory.
+	 *
+	 * @return Stream of {@link ContactDTO} objects, which must be closed to close the
+	 *         response. An error while reading it is thrown as an
+	 *         {@link java.io.UncheckedIOException} by the stream.
+	 * @throws Exception If an error occurs during the API request.
+	 */
+	public Stream<ContactDTO> streamContacts() throws Exception {
+		return JsonArrayStream.of(connection.doGetStream(URL + "/export"), GSON, ContactDTO.class);
 	}
 
 	/**
@@ -65,8 +134,7 @@ public class ApiContactService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public void createContact(ContactDTO contactDTO) throws Exception {
-		Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX").create();
-		String body = gson.toJson(contactDTO);
+		String body = GSON.toJson(contactDTO);
 		connection.doPost(body, URL);
 	}
 
@@ -79,9 +147,13 @@ public class ApiContactService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public void updateContact(ContactDTO contactDTO) throws Exception {
-		Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX").create();
-		String body = gson.toJson(contactDTO);
-		connection.doUpdate(body, URL + "/" + contactDTO.getId());
+		String body = GSON.toJson(contactDTO);
+		String url = URL + "/" + contactDTO.getId();
+		try {
+			connection.doUpdate(body, url);
+		} finally {
+			cache.invalidate(url);
+		}
 
 	}
 
@@ -92,6 +164,89 @@ public class ApiContactService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public void deleteContact(String id) throws Exception {
-		connection.doDelete(URL + "/" + id);
+		String url = URL + "/" + id;
+		try {
+			connection.doDelete(url);
+		} finally {
+			cache.invalidate(url);
+		}
+	}
+
+	/**
+	 * Retrieves contact information by ID from the API without waiting for the
+	 * response.
+	 *
+	 * @param id The numeric ID of the contact to retrieve.
+	 * @return Future of the {@link ContactDTO} object representing the contact.
+	 * @see #findContactById(long)
+	 */
+	public CompletableFuture<ContactDTO> findContactByIdAsync(long id) {
+		return map(connection.doGetAsync(URL + "/" + id), body -> GSON.fromJson(body, ContactDTO.class));
+	}
+
+	/**
+	 * Retrieves information about all contacts from the export endpoint of the
+	 * API without waiting for the response.
+	 *
+	 * @return Future of the list of {@link ContactDTO} objects.
+	 * @see #obtainAllContacts()
+	 */
+	public CompletableFuture<List<ContactDTO>> obtainAllContactsAsync() {
+		return map(connection.doGetAsync(URL + "/export"), body -> GSON.fromJson(body, CONTACT_LIST));
+	}
+
+	/**
+	 * Creates a new contact without waiting for the response.
+	 *
+	 * @param contactDTO The {@link ContactDTO} object representing the contact to be
+	 *                   created.
+	 * @return Future completed when the contact has been created.
+	 * @see #createContact(ContactDTO)
+	 */
+	public CompletableFuture<Void> createContactAsync(ContactDTO contactDTO) {
+		return map(connection.doPostAsync(GSON.toJson(contactDTO), URL), body -> null);
+	}
+
+	/**
+	 * Updates an existing contact without waiting for the response.
+	 *
+	 * @param contactDTO The {@link ContactDTO} object representing the contact with
+	 *                   updated information.
+	 * @return Future completed when the contact has been updated.
+	 * @see #updateContact(ContactDTO)
+	 */
+	public CompletableFuture<Void> updateContactAsync(ContactDTO contactDTO) {
+		return updateContactAsync(contactDTO, null);
+	}
+
+	/**
+	 * Updates an existing contact without waiting for the response, only if it
+	 * still has the given entity tag.
+	 *
+	 * @param contactDTO The {@link ContactDTO} object representing the contact with
+	 *                   updated information.
+	 * @param eTag       The entity tag the contact was read with, or {@code null}
+	 *                   to update it whatever its version.
+	 * @return Future completed when the contact has been updated, or
+	 *         exceptionally with a
+	 *         {@link com.sitelicon.exceptions.PreconditionFailedException} if it
+	 *         has been changed since it was read.
+	 * @see #findTaggedContactById(long)
+	 */
+	public CompletableFuture<Void> updateContactAsync(ContactDTO contactDTO, String eTag) {
+		String url = URL + "/" + contactDTO.getId();
+		return invalidateWhenDone(connection.doUpdateAsync(GSON.toJson(contactDTO), url, eTag), url);
+	}
+
+	/**
+	 * Deletes a contact by ID from the API without waiting for the response.
+	 *
+	 * @param id The numeric ID of the contact to be deleted.
+	 * @return Future completed when the contact has been deleted.
+	 * @see #deleteContact(String)
+	 */
+	public CompletableFuture<Void> deleteContactAsync(String id) {
+		String url = URL + "/" + id;
+		return invalidateWhenDone(connection.doDeleteAsync(url), url);
 	}
 }
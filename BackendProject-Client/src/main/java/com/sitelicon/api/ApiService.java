@@ -1,5 +1,15 @@
 package com.sitelicon.api;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
 /**
  * The base class for API services, providing common functionalities and
  * resources. It includes the base URL for API requests and an instance of the
@@ -7,8 +17,10 @@ package com.sitelicon.api;
  *
  * <p>
  * The {@link #URL} constant represents the base URL for API requests and is set
- * to "http://localhost:8080/api". The {@link #connection} field is an instance
- * of the {@link Connection} class used for making HTTP requests.
+ * to "http://localhost:8080/api", unless the {@code client.api.url} system
+ * property gives another one. The {@link #connection} field is the
+ * {@link Connection} shared by all the API services, so their requests reuse
+ * the same connections to the server.
  * 
  * @see Connection
  */
@@ -16,11 +28,107 @@ public class ApiService {
 	/**
 	 * The base URL for API requests.
 	 */
-	final String URL = "http://localhost:8080/api";
+	final String URL = System.getProperty("client.api.url", "http://localhost:8080/api");
+
+	/**
+	 * The {@link Connection} shared by all the API services for handling HTTP
+	 * connections.
+	 */
+	final Connection connection = Connection.getDefault();
+
+	/**
+	 * The {@link ResponseCache} shared by all the API services. It is disabled
+	 * unless the {@code client.cache.size} system property gives its size.
+	 */
+	final ResponseCache cache = ResponseCache.getDefault();
+
+	/**
+	 * The {@link SingleFlight} shared by all the API services, so concurrent
+	 * identical GET requests send one request and decode one response.
+	 */
+	final SingleFlight singleFlight = SingleFlight.getDefault();
+
+	/**
+	 * The Gson instance shared by all the API services. Gson instances are
+	 * thread-safe, and building one for every request would discard the type
+	 * adapters it has already created.
+	 */
+	static final Gson GSON = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX").create();
+
+	/**
+	 * Transforms the result of an asynchronous request, keeping the request
+	 * cancellable: cancelling the returned future cancels the request too.
+	 *
+	 * @param request The future of the request.
+	 * @param mapper  The function applied to the result of the request.
+	 * @return Future of the transformed result.
+	 */
+	static <T, R> CompletableFuture<R> map(CompletableFuture<T> request, Function<T, R> mapper) {
+		CompletableFuture<R> mapped = request.thenApply(mapper);
+		mapped.whenComplete((result, error) -> {
+			if (mapped.isCancelled()) {
+				request.cancel(true);
+			}
+		});
+		return mapped;
+	}
+
+	/**
+	 * Waits for an asynchronous request that changes a resource and invalidates
+	 * its cached response once the request has finished, whether it succeeded,
+	 * failed or was cancelled, as the blocking requests do in a {@code finally}
+	 * block: the change may have reached the server even if its response didn't.
+	 * The response is invalidated before the returned future completes, and
+	 * cancelling the returned future cancels the request too.
+	 *
+	 * @param request The future of the request.
+	 * @param url     The URL of the changed resource.
+	 * @return Future completed when the request has finished and the response
+	 *         has been invalidated.
+	 */
+	CompletableFuture<Void> invalidateWhenDone(CompletableFuture<String> request, String url) {
+		CompletableFuture<Void> done = new CompletableFuture<>();
+		request.whenComplete((body, error) -> {
+			cache.invalidate(url);
+			if (error != null) {
+				done.completeExceptionally(error);
+			} else {
+				done.complete(null);
+			}
+		});
+		done.whenComplete((result, error) -> {
+			if (done.isCancelled()) {
+				request.cancel(true);
+			}
+		});
+		return done;
+	}
+
+	/**
+	 * Retrieves an entity along with its entity tag, bypassing the
+	 * {@link ResponseCache} and the {@link SingleFlight}, so the caller gets its
+	 * own object and the tag the server sent with it.
+	 *
+	 * @param url  The URL of the entity.
+	 * @param type The class of the entity.
+	 * @return The entity and its entity tag.
+	 * @throws Exception If an error occurs during the API request.
+	 */
+	<T> Tagged<T> findTagged(String url, Class<T> type) throws Exception {
+		HttpResponse<InputStream> response = connection.doGetResponse(url);
+		try (InputStream body = response.body()) {
+			T value = GSON.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8), type);
+			return new Tagged<>(value, response.headers().firstValue("ETag").orElse(null));
+		}
+	}
 
 	/**
-	 * An instance of the {@link Connection} class for handling HTTP connections.
+	 * An entity and the entity tag it was read with, {@code null} if the response
+	 * didn't have one. The tag is sent back in the {@code If-Match} header of an
+	 * update, so the update is rejected if another request changed the entity in
+	 * between.
 	 */
-	final Connection connection = new Connection();
+	public record Tagged<T>(T value, String eTag) {
+	}
 
 }
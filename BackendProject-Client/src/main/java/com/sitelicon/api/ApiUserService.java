@@ -1,10 +1,13 @@
 package com.sitelicon.api;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.sitelicon.dto.UserDTO;
 
@@ -15,7 +18,27 @@ import com.sitelicon.dto.UserDTO;
  *
  * <p>
  * The base URL for user-related API endpoints is defined in the {@link #URL}
- * constant. The class uses Gson for JSON serialization and deserialization.
+ * constant. The class uses the Gson instance shared by the API services for
+ * JSON serialization and deserialization.
+ *
+ * <p>
+ * Every operation has an asynchronous version, such as
+ * {@link #findUserByIdAsync(long)}, that returns a {@link CompletableFuture}
+ * instead of waiting for the response. The futures complete exceptionally with
+ * the same exceptions thrown by the blocking versions, such as
+ * {@link com.sitelicon.exceptions.NotFoundException}, and cancelling them
+ * cancels the request.
+ *
+ * <p>
+ * When the {@link ResponseCache} is enabled, the users found by ID are cached
+ * and revalidated with their entity tag on the next lookups, so an unchanged
+ * user costs a 304 (Not Modified) response without body. Updating or deleting a
+ * user through this class removes it from the cache.
+ *
+ * <p>
+ * The blocking lookups are coalesced with {@link SingleFlight}: when several
+ * threads look up the same user, or all the users, at the same time, a
+ * single request is sent and they all get the same result.
  * 
  * @see ApiService
  */
@@ -26,6 +49,12 @@ public class ApiUserService extends ApiService {
 	 */
 	private final String URL = super.URL + "/users";
 
+	/**
+	 * The type of a list of {@link UserDTO} objects, for Gson.
+	 */
+	private static final Type USER_LIST = new TypeToken<List<UserDTO>>() {
+	}.getType();
+
 	/**
 	 * Retrieves user information by ID from the API.
 	 *
@@ -34,28 +63,68 @@ public class ApiUserService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public UserDTO findUserById(long id) throws Exception {
-		String body = connection.doGet(URL + "/" + id);
-		Gson gson = new Gson();
+		String url = URL + "/" + id;
+		return singleFlight.execute(url, () -> GSON.fromJson(connection.doGet(url, cache), UserDTO.class));
+	}
 
-		UserDTO userDTO = gson.fromJson(body, UserDTO.class);
-		return userDTO;
+	/**
+	 * Retrieves user information by ID from the API along with its entity tag,
+	 * to update it with {@link #updateUserAsync(UserDTO, String)} only if it
+	 * hasn't changed in between. The user isn't shared with other lookups, so it
+	 * can be modified.
+	 *
+	 * @param id The numeric ID of the user to retrieve.
+	 * @return The {@link UserDTO} object representing the user, and its entity
+	 *         tag.
+	 * @throws Exception If an error occurs during the API request.
+	 */
+	public Tagged<UserDTO> findTaggedUserById(long id) throws Exception {
+		return findTagged(URL + "/" + id, UserDTO.class);
 	}
 
 	/**
-	 * Retrieves information about all users from the API.
+	 * Retrieves information about all users from the export endpoint of the API,
+	 * which returns them in a single response instead of a page at a time.
 	 *
 	 * @return A list of {@link UserDTO} objects representing all users.
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public List<UserDTO> obtainAllUsers() throws Exception {
-		String body = connection.doGet(URL);
-		Gson gson = new Gson();
+		String url = URL + "/export";
+		return singleFlight.execute(url, () -> {
+			try (InputStream body = connection.doGetStream(url)) {
+				return GSON.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8), USER_LIST);
+			}
+		});
+	}
 
-		Type listType = new TypeToken<List<UserDTO>>() {
-		}.getType();
+	/**
+	 * Returns the users of the API, fetched a page at a time as they are
+	 * iterated. The next page is requested in the background while the current
+	 * one is being used, so the first users are available without waiting for
+	 * the rest.
+	 *
+	 * @param pageSize The number of users requested per page. The server caps
+	 *                 it to its maximum.
+	 * @return Iterable of {@link UserDTO} objects ordered by ID.
+	 * @see PagedIterable
+	 */
+	public PagedIterable<UserDTO> iterateUsers(int pageSize) {
+		return new PagedIterable<>(connection, URL, pageSize, USER_LIST);
+	}
 
-		List<UserDTO> users = gson.fromJson(body, listType);
-		return users;
+	/**
+	 * Retrieves all the users from the export endpoint of the API, decoding
+	 * every user as it is received instead of reading the whole response
+	 * first. Only the user being decoded is kept in memory.
+	 *
+	 * @return Stream of {@link UserDTO} objects, which must be closed to close the
+	 *         response. An error while reading it is thrown as an
+	 *         {@link java.io.UncheckedIOException} by the stream.
+	 * @throws Exception If an error occurs during the API request.
+	 */
+	public Stream<UserDTO> streamUsers() throws Exception {
+		return JsonArrayStream.of(connection.doGetStream(URL + "/export"), GSON, UserDTO.class);
 	}
 
 	/**
@@ -66,8 +135,7 @@ public class ApiUserService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public void createUser(UserDTO userDTO) throws Exception {
-		Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX").create();
-		String body = gson.toJson(userDTO);
+		String body = GSON.toJson(userDTO);
 		connection.doPost(body, URL);
 	}
 
@@ -80,9 +148,13 @@ public class ApiUserService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public void updateUser(UserDTO userDTO) throws Exception {
-		Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX").create();
-		String body = gson.toJson(userDTO);
-		connection.doUpdate(body, URL + "/" + userDTO.getId());
+		String body = GSON.toJson(userDTO);
+		String url = URL + "/" + userDTO.getId();
+		try {
+			connection.doUpdate(body, url);
+		} finally {
+			cache.invalidate(url);
+		}
 
 	}
 
@@ -93,6 +165,88 @@ public class ApiUserService extends ApiService {
 	 * @throws Exception If an error occurs during the API request.
 	 */
 	public void deleteUser(long id) throws Exception {
-		connection.doDelete(URL + "/" + id);
+		String url = URL + "/" + id;
+		try {
+			connection.doDelete(url);
+		} finally {
+			cache.invalidate(url);
+		}
+	}
+
+	/**
+	 * Retrieves user information by ID from the API without waiting for the
+	 * response.
+	 *
+	 * @param id The numeric ID of the user to retrieve.
+	 * @return Future of the {@link UserDTO} object representing the user.
+	 * @see #findUserById(long)
+	 */
+	public CompletableFuture<UserDTO> findUserByIdAsync(long id) {
+		return map(connection.doGetAsync(URL + "/" + id), body -> GSON.fromJson(body, UserDTO.class));
+	}
+
+	/**
+	 * Retrieves information about all users from the export endpoint of the API
+	 * without waiting for the response.
+	 *
+	 * @return Future of the list of {@link UserDTO} objects.
+	 * @see #obtainAllUsers()
+	 */
+	public CompletableFuture<List<UserDTO>> obtainAllUsersAsync() {
+		return map(connection.doGetAsync(URL + "/export"), body -> GSON.fromJson(body, USER_LIST));
+	}
+
+	/**
+	 * Creates a new user without waiting for the response.
+	 *
+	 * @param userDTO The {@link UserDTO} object representing the user to be
+	 *                created.
+	 * @return Future completed when the user has been created.
+	 * @see #createUser(UserDTO)
+	 */
+	public CompletableFuture<Void> createUserAsync(UserDTO userDTO) {
+		return map(connection.doPostAsync(GSON.toJson(userDTO), URL), body -> null);
+	}
+
+	/**
+	 * Updates an existing user without waiting for the response.
+	 *
+	 * @param userDTO The {@link UserDTO} object representing the user with
+	 *                updated information.
+	 * @return Future completed when the user has been updated.
+	 * @see #updateUser(UserDTO)
+	 */
+	public CompletableFuture<Void> updateUserAsync(UserDTO userDTO) {
+		return updateUserAsync(userDTO, null);
+	}
+
+	/**
+	 * Updates an existing user without waiting for the response, only if it still
+	 * has the given entity tag.
+	 *
+	 * @param userDTO The {@link UserDTO} object representing the user with
+	 *                updated information.
+	 * @param eTag    The entity tag the user was read with, or {@code null} to
+	 *                update it whatever its version.
+	 * @return Future completed when the user has been updated, or exceptionally
+	 *         with a {@link com.sitelicon.exceptions.PreconditionFailedException}
+	 *         if it has been changed since it was read.
+	 * @see #findTaggedUserById(long)
+	 */
+	public CompletableFuture<Void> updateUserAsync(UserDTO userDTO, String eTag) {
+		String url = URL + "/" + userDTO.getId();
+		return invalidateWhenDone(connection.doUpdateAsync(GSON.toJson(userDTO), url, eTag), url);
+	}
+
+	/**
+	 * Deletes a user by ID from the API without waiting for the response.
+	 *
+	 * @param id The numeric ID of the user to be deleted.
+	 * @return Future completed when the user has been deleted.
+	 * @see #deleteUser(long)
+	 */
+	public CompletableFuture<Void> deleteUserAsync(long id) {
+		String url = URL + "/" + id;
+		return invalidateWhenDone(connection.doDeleteAsync(url), url);
 	}
 }
@@ -1,11 +1,24 @@
 package com.sitelicon.api;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.sitelicon.exceptions.NotFoundException;
+import com.sitelicon.exceptions.PreconditionFailedException;
 
 /**
  * This class provides methods for making HTTP requests, such as GET, POST, PUT,
@@ -17,6 +30,10 @@ import com.sitelicon.exceptions.NotFoundException;
  * <ul>
  * <li>{@link #doGet(String)}: Sends a GET request to the specified URL and
  * retrieves the response body.</li>
+ * <li>{@link #doGet(String, ResponseCache)}: Sends a GET request to the
+ * specified URL, revalidating the response cached for it, if any.</li>
+ * <li>{@link #doGetStream(String)}: Sends a GET request to the specified URL
+ * and returns the response body as it is received.</li>
  * <li>{@link #doPost(String, String)}: Sends a POST request with the given body
  * to the specified URL.</li>
  * <li>{@link #doUpdate(String, String)}: Sends a PUT request with the given
@@ -25,14 +42,130 @@ import com.sitelicon.exceptions.NotFoundException;
  * URL.</li>
  * </ul>
  * Additionally, these methods handle HTTP response status codes, throwing a
- * {@link NotFoundException} for a 404 status code and a general
+ * {@link NotFoundException} for a 404 status code, a
+ * {@link PreconditionFailedException} for a 412 status code and a general
  * {@link Exception} for other error codes.
  *
+ * <p>
+ * Every method has an asynchronous version, such as
+ * {@link #doGetAsync(String)}, that returns a {@link CompletableFuture}
+ * completed with the response body, or exceptionally with the same exceptions.
+ * At most a configured number of asynchronous requests are sent at once, the
+ * rest wait in order until one of them finishes. Cancelling the future of a
+ * request that is waiting keeps it from being sent, and cancelling the one of a
+ * request already sent aborts it.
+ *
+ * <p>
+ * A connection keeps a single {@link HttpClient} for all its requests, so the
+ * TCP connections to the server are kept alive and reused between requests
+ * instead of opening one per request. The API services share the connection
+ * returned by {@link #getDefault()}, which is configured with these system
+ * properties:
+ * <ul>
+ * <li>{@code client.http.version}: {@code HTTP_1_1} (default) or
+ * {@code HTTP_2}.</li>
+ * <li>{@code client.http.connect-timeout}: Milliseconds to open a connection
+ * (5000 by default).</li>
+ * <li>{@code client.http.request-timeout}: Milliseconds to receive the
+ * response of a request (30000 by default).</li>
+ * <li>{@code client.http.threads}: Threads that handle the responses (4 by
+ * default).</li>
+ * <li>{@code client.http.max-in-flight}: Asynchronous requests sent at once (64
+ * by default).</li>
+ * </ul>
+ * The number of idle connections kept and how long they are kept are set with
+ * the {@code jdk.httpclient.connectionPoolSize} and
+ * {@code jdk.httpclient.keepalive.timeout} system properties of the JDK.
+ *
  * @see HttpClient
  * @see HttpRequest
  * @see HttpResponse
  */
-public class Connection {
+public class Connection implements AutoCloseable {
+
+	private static final Connection DEFAULT = new Connection(
+			HttpClient.Version.valueOf(System.getProperty("client.http.version", "HTTP_1_1")),
+			Duration.ofMillis(Long.getLong("client.http.connect-timeout", 5000)),
+			Duration.ofMillis(Long.getLong("client.http.request-timeout", 30000)),
+			Integer.getInteger("client.http.threads", 4), Integer.getInteger("client.http.max-in-flight", 64));
+
+	private final ExecutorService executor;
+	private final HttpClient client;
+	private final Duration requestTimeout;
+
+	/**
+	 * Permits of the asynchronous requests being sent.
+	 */
+	private final Semaphore inFlight;
+
+	/**
+	 * Asynchronous requests waiting for a permit, in the order they were made.
+	 */
+	private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Times the waiting requests were asked to be sent and haven't been drained
+	 * yet. Only the thread that takes it from zero drains the queue, the others
+	 * just leave it a pass more to do.
+	 */
+	private final AtomicInteger drainRequests = new AtomicInteger();
+
+	/**
+	 * Creates a connection with its own {@link HttpClient} and threads.
+	 *
+	 * @param version        The HTTP version used. With {@code HTTP_2}, the
+	 *                       client falls back to HTTP/1.1 if the server doesn't
+	 *                       support it.
+	 * @param connectTimeout The maximum time to open a connection.
+	 * @param requestTimeout The maximum time to receive the response of a request.
+	 * @param threads        The number of threads that handle the responses.
+	 * @param maxInFlight    The maximum number of asynchronous requests sent at
+	 *                       once.
+	 */
+	public Connection(HttpClient.Version version, Duration connectTimeout, Duration requestTimeout, int threads,
+			int maxInFlight) {
+		this(version, connectTimeout, requestTimeout, newExecutor(threads), maxInFlight);
+	}
+
+	/**
+	 * Creates a connection with its own {@link HttpClient} that runs on the given
+	 * threads, which are shut down when the connection is closed.
+	 *
+	 * @param version        The HTTP version used.
+	 * @param connectTimeout The maximum time to open a connection.
+	 * @param requestTimeout The maximum time to receive the response of a request.
+	 * @param executor       The threads that handle the responses.
+	 * @param maxInFlight    The maximum number of asynchronous requests sent at
+	 *                       once.
+	 */
+	Connection(HttpClient.Version version, Duration connectTimeout, Duration requestTimeout,
+			ExecutorService executor, int maxInFlight) {
+		this.executor = executor;
+		this.client = HttpClient.newBuilder().version(version).connectTimeout(connectTimeout).executor(executor)
+				.build();
+		this.requestTimeout = requestTimeout;
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+
+	private static ExecutorService newExecutor(int threads) {
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory threadFactory = runnable -> {
+			Thread thread = new Thread(runnable, "api-client-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return Executors.newFixedThreadPool(threads, threadFactory);
+	}
+
+	/**
+	 * Returns the connection shared by the API services, configured with the
+	 * system properties.
+	 *
+	 * @return The shared connection.
+	 */
+	public static Connection getDefault() {
+		return DEFAULT;
+	}
 
 	/**
 	 * Sends a GET request to the specified URL and retrieves the response body.
@@ -45,21 +178,97 @@ public class Connection {
 	 *                           received.
 	 */
 	public String doGet(String url) throws Exception {
-		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).GET().build();
+		HttpRequest request = newRequest(url).GET().build();
 
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		return bodyOf(response);
+	}
 
-			if (response.statusCode() == 200) {
-				return response.body();
-			} else if (response.statusCode() == 404) {
-				throw new NotFoundException();
-			} else {
-				throw new Exception("Error: " + response.statusCode());
-			}
+	/**
+	 * Sends a GET request to the specified URL and retrieves the response body,
+	 * using the given cache. If the cache has a response for the URL, the request
+	 * carries its validators, and when the server answers 304 (Not Modified) the
+	 * cached body is returned. Otherwise the new response is cached.
+	 *
+	 * @param url   The URL to send the GET request to.
+	 * @param cache The cache of the responses.
+	 * @return The response body as a string.
+	 * @throws NotFoundException If the HTTP response status code is 404 (Not
+	 *                           Found).
+	 * @throws Exception         If an unexpected HTTP response status code is
+	 *                           received.
+	 */
+	public String doGet(String url, ResponseCache cache) throws Exception {
+		ResponseCache.Entry cached = cache.get(url);
+		HttpRequest.Builder request = newRequest(url).GET();
+		if (cached != null && cached.eTag() != null) {
+			request.header("If-None-Match", cached.eTag());
+		}
+		if (cached != null && cached.lastModified() != null) {
+			request.header("If-Modified-Since", cached.lastModified());
+		}
 
+		HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() == 304 && cached != null) {
+			cache.countRevalidated();
+			return cached.body();
 		}
+		if (cached != null) {
+			cache.countRefreshed();
+		}
+		try {
+			String body = bodyOf(response);
+			cache.put(url, new ResponseCache.Entry(body, response.headers().firstValue("ETag").orElse(null),
+					response.headers().firstValue("Last-Modified").orElse(null)));
+			return body;
+		} catch (Exception e) {
+			cache.invalidate(url);
+			throw e;
+		}
+	}
+
+	/**
+	 * Sends a GET request to the specified URL and returns the response body as
+	 * it is received, without reading it into memory first.
+	 *
+	 * @param url The URL to send the GET request to.
+	 * @return The response body, which must be closed by the caller.
+	 * @throws NotFoundException If the HTTP response status code is 404 (Not
+	 *                           Found).
+	 * @throws Exception         If an unexpected HTTP response status code is
+	 *                           received.
+	 */
+	public InputStream doGetStream(String url) throws Exception {
+		return doGetResponse(url).body();
+	}
+
+	/**
+	 * Sends a GET request to the specified URL and returns the response, with its
+	 * headers and its body as it is received.
+	 *
+	 * @param url The URL to send the GET request to.
+	 * @return The response, whose body must be closed by the caller.
+	 * @throws NotFoundException If the HTTP response status code is 404 (Not
+	 *                           Found).
+	 * @throws Exception         If an unexpected HTTP response status code is
+	 *                           received.
+	 */
+	public HttpResponse<InputStream> doGetResponse(String url) throws Exception {
+		HttpRequest request = newRequest(url).GET().build();
 
+		HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		if (response.statusCode() == 200) {
+			return response;
+		}
+		try (InputStream body = response.body()) {
+			body.transferTo(OutputStream.nullOutputStream());
+		} catch (IOException e) {
+			// The connection is discarded
+		}
+		if (response.statusCode() == 404) {
+			throw new NotFoundException();
+		}
+		throw new Exception("Error: " + response.statusCode());
 	}
 
 	/**
@@ -67,17 +276,17 @@ public class Connection {
 	 *
 	 * @param body The body of the POST request.
 	 * @param url  The URL to send the POST request to.
-	 * @throws Exception If an unexpected HTTP response status code is received.
+	 * @throws NotFoundException If the HTTP response status code is 404 (Not
+	 *                           Found).
+	 * @throws Exception         If the HTTP response status code isn't a
+	 *                           successful one.
 	 */
 	public void doPost(String body, String url) throws Exception {
-		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url))
-				.POST(HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", "application/json").build();
-
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-			System.out.println(response.body());
-		}
+		HttpRequest request = newRequest(url).POST(HttpRequest.BodyPublishers.ofString(body))
+				.header("Content-Type", "application/json").build();
 
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		successfulBodyOf(response);
 	}
 
 	/**
@@ -92,22 +301,11 @@ public class Connection {
 	 *                           received.
 	 */
 	public String doUpdate(String body, String url) throws Exception {
-		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url))
-				.PUT(HttpRequest.BodyPublishers.ofString(body)).header("Content-Type", "application/json").build();
-
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-			System.out.println(response.body());
-
-			if (response.statusCode() == 200) {
-				return response.body();
-			} else if (response.statusCode() == 404) {
-				throw new NotFoundException();
-			} else {
-				throw new Exception("Error: " + response.statusCode());
-			}
-		}
+		HttpRequest request = newRequest(url).PUT(HttpRequest.BodyPublishers.ofString(body))
+				.header("Content-Type", "application/json").build();
 
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		return bodyOf(response);
 	}
 
 	/**
@@ -121,21 +319,223 @@ public class Connection {
 	 *                           received.
 	 */
 	public String doDelete(String url) throws Exception {
-		HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).DELETE().build();
-
-		try (HttpClient client = HttpClient.newHttpClient()) {
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-			System.out.println(response.body());
-
-			if (response.statusCode() == 200) {
-				return response.body();
-			} else if (response.statusCode() == 404) {
-				throw new NotFoundException();
-			} else {
-				throw new Exception("Error: " + response.statusCode());
+		HttpRequest request = newRequest(url).DELETE().build();
+
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		return bodyOf(response);
+	}
+
+	/**
+	 * Sends a GET request to the specified URL without waiting for the response.
+	 *
+	 * @param url The URL to send the GET request to.
+	 * @return Future completed with the response body, or exceptionally with a
+	 *         {@link NotFoundException} if the HTTP response status code is 404
+	 *         (Not Found) or an {@link Exception} for other error codes.
+	 */
+	public CompletableFuture<String> doGetAsync(String url) {
+		return sendAsync(newRequest(url).GET().build());
+	}
+
+	/**
+	 * Sends a POST request with the given body to the specified URL without
+	 * waiting for the response.
+	 *
+	 * @param body The body of the POST request.
+	 * @param url  The URL to send the POST request to.
+	 * @return Future completed with the response body, or exceptionally with a
+	 *         {@link NotFoundException} if the HTTP response status code is 404
+	 *         (Not Found) or an {@link Exception} for other error codes.
+	 */
+	public CompletableFuture<String> doPostAsync(String body, String url) {
+		return sendAsync(newRequest(url).POST(HttpRequest.BodyPublishers.ofString(body))
+				.header("Content-Type", "application/json").build());
+	}
+
+	/**
+	 * Sends a PUT request with the given body to the specified URL without
+	 * waiting for the response.
+	 *
+	 * @param body The body of the PUT request.
+	 * @param url  The URL to send the PUT request to.
+	 * @return Future completed with the response body, or exceptionally with a
+	 *         {@link NotFoundException} if the HTTP response status code is 404
+	 *         (Not Found) or an {@link Exception} for other error codes.
+	 */
+	public CompletableFuture<String> doUpdateAsync(String body, String url) {
+		return doUpdateAsync(body, url, null);
+	}
+
+	/**
+	 * Sends a PUT request with the given body to the specified URL without
+	 * waiting for the response, applied only if the resource still has the given
+	 * entity tag.
+	 *
+	 * @param body    The body of the PUT request.
+	 * @param url     The URL to send the PUT request to.
+	 * @param ifMatch The entity tag sent in the {@code If-Match} header, or
+	 *                {@code null} to send the request unconditionally.
+	 * @return Future completed with the response body, or exceptionally with a
+	 *         {@link PreconditionFailedException} if the HTTP response status
+	 *         code is 412 (Precondition Failed), a {@link NotFoundException} if it
+	 *         is 404 (Not Found) or an {@link Exception} for other error codes.
+	 */
+	public CompletableFuture<String> doUpdateAsync(String body, String url, String ifMatch) {
+		HttpRequest.Builder request = newRequest(url).PUT(HttpRequest.BodyPublishers.ofString(body))
+				.header("Content-Type", "application/json");
+		if (ifMatch != null) {
+			request.header("If-Match", ifMatch);
+		}
+		return sendAsync(request.build());
+	}
+
+	/**
+	 * Sends a DELETE request to the specified URL without waiting for the
+	 * response.
+	 *
+	 * @param url The URL to send the DELETE request to.
+	 * @return Future completed with the response body, or exceptionally with a
+	 *         {@link NotFoundException} if the HTTP response status code is 404
+	 *         (Not Found) or an {@link Exception} for other error codes.
+	 */
+	public CompletableFuture<String> doDeleteAsync(String url) {
+		return sendAsync(newRequest(url).DELETE().build());
+	}
+
+	/**
+	 * Closes the connections to the server and stops the threads of this
+	 * connection.
+	 */
+	@Override
+	public void close() {
+		client.close();
+		executor.shutdown();
+	}
+
+	/**
+	 * Sends a request as soon as there is a permit for it. The request keeps its
+	 * permit until its response is received, and then returns it for the next
+	 * request waiting, if any.
+	 */
+	private CompletableFuture<String> sendAsync(HttpRequest request) {
+		CompletableFuture<String> result = new CompletableFuture<>();
+		Runnable send = () -> {
+			if (result.isDone()) {
+				// Cancelled while waiting
+				release();
+				return;
+			}
+			CompletableFuture<HttpResponse<String>> sent;
+			try {
+				sent = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+			} catch (RuntimeException e) {
+				// Rejected before being sent, such as once the threads are shut down
+				release();
+				result.completeExceptionally(e);
+				return;
+			}
+			result.whenComplete((body, error) -> {
+				if (result.isCancelled()) {
+					sent.cancel(true);
+				}
+			});
+			sent.whenComplete((response, error) -> {
+				release();
+				if (error != null) {
+					result.completeExceptionally(error);
+					return;
+				}
+				try {
+					result.complete(successfulBodyOf(response));
+				} catch (Exception e) {
+					result.completeExceptionally(e);
+				}
+			});
+		};
+
+		if (inFlight.tryAcquire()) {
+			send.run();
+		} else {
+			waiting.add(send);
+			startWaiting();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the permit of a finished, cancelled or rejected request and sends
+	 * the next one waiting, if any.
+	 */
+	private void release() {
+		inFlight.release();
+		startWaiting();
+	}
+
+	/**
+	 * Sends the requests waiting while there are free permits. It covers the
+	 * requests queued while a permit was being returned.
+	 * <p>
+	 * A waiting request that was cancelled, or that is rejected, returns its
+	 * permit from inside this loop. Instead of draining the queue again from
+	 * there, which would nest a call for every such request in a row, that call
+	 * only asks the thread already draining for one more pass.
+	 */
+	private void startWaiting() {
+		if (drainRequests.getAndIncrement() != 0) {
+			return;
+		}
+		int requests = 1;
+		do {
+			while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+				Runnable next = waiting.poll();
+				if (next == null) {
+					inFlight.release();
+				} else {
+					next.run();
+				}
 			}
+			requests = drainRequests.addAndGet(-requests);
+		} while (requests != 0);
+	}
+
+	private HttpRequest.Builder newRequest(String url) {
+		return HttpRequest.newBuilder().uri(URI.create(url)).timeout(requestTimeout);
+	}
+
+	/**
+	 * Returns the body of a successful response.
+	 *
+	 * @throws NotFoundException           If the HTTP response status code is 404
+	 *                                     (Not Found).
+	 * @throws PreconditionFailedException If the HTTP response status code is 412
+	 *                                     (Precondition Failed).
+	 * @throws Exception                   If the status code isn't 200 (OK).
+	 */
+	private static String bodyOf(HttpResponse<String> response) throws Exception {
+		if (response.statusCode() == 200) {
+			return response.body();
+		} else if (response.statusCode() == 404) {
+			throw new NotFoundException();
+		} else if (response.statusCode() == 412) {
+			throw new PreconditionFailedException();
+		} else {
+			throw new Exception("Error: " + response.statusCode());
 		}
+	}
 
+	/**
+	 * Returns the body of a response with any successful status code, such as 201
+	 * (Created).
+	 *
+	 * @throws NotFoundException If the HTTP response status code is 404 (Not
+	 *                           Found).
+	 * @throws Exception         If the status code isn't a successful one.
+	 */
+	private static String successfulBodyOf(HttpResponse<String> response) throws Exception {
+		if (response.statusCode() / 100 == 2) {
+			return response.body();
+		}
+		return bodyOf(response);
 	}
 
 }
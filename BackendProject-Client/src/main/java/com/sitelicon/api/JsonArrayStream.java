@@ -0,0 +1,71 @@
+package com.sitelicon.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Decodes a JSON array from an input stream one element at a time, with a
+ * {@link JsonReader}, so only the element being decoded is kept in memory.
+ * <p>
+ * The elements are handed out through a sequential {@link Stream}, which must be
+ * closed to close the input stream. An error while reading is thrown as an
+ * {@link UncheckedIOException} by the operation of the stream that hit it.
+ */
+final class JsonArrayStream {
+
+	private JsonArrayStream() {
+	}
+
+	/**
+	 * Returns a stream of the elements of the JSON array read from the input.
+	 *
+	 * @param input The input with the JSON array, closed with the stream.
+	 * @param gson  The Gson instance that decodes the elements.
+	 * @param type  The class of the elements.
+	 * @return Stream of the elements, in the order they are read.
+	 */
+	static <T> Stream<T> of(InputStream input, Gson gson, Class<T> type) {
+		JsonReader reader = gson.newJsonReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		Spliterator<T> elements = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+
+			private boolean started;
+
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				try {
+					if (!started) {
+						started = true;
+						reader.beginArray();
+					}
+					if (reader.peek() == JsonToken.END_ARRAY) {
+						return false;
+					}
+					action.accept(gson.fromJson(reader, type));
+					return true;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+		return StreamSupport.stream(elements, false).onClose(() -> {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+}
@@ -0,0 +1,131 @@
+package com.sitelicon.api;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Elements of a paginated listing of the API, fetched a page at a time as they
+ * are iterated.
+ * <p>
+ * The API returns the cursor of the next page in the {@code X-Next-Cursor}
+ * header. As soon as a page is received, the next one is requested in the
+ * background, so it is usually ready when the elements of the current one have
+ * been used. Every call to {@link #iterator()} starts again from the first
+ * page.
+ * <p>
+ * The iterators can't throw checked exceptions, so when a page can't be
+ * fetched they throw a {@link CompletionException} whose cause is the exception
+ * thrown by the request, such as a {@link java.net.ConnectException}.
+ *
+ * @param <T> The type of the elements.
+ */
+public class PagedIterable<T> implements Iterable<T> {
+
+	/**
+	 * Header of the responses with the cursor of the next page.
+	 */
+	static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	/**
+	 * Threads that fetch the next pages in the background. They are virtual, so
+	 * they don't keep the client running.
+	 */
+	private static final ExecutorService PREFETCH = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final Connection connection;
+	private final String url;
+	private final int pageSize;
+	private final Type listType;
+
+	/**
+	 * Creates the elements of a listing.
+	 *
+	 * @param connection The connection the pages are requested with.
+	 * @param url        The URL of the listing, without query parameters.
+	 * @param pageSize   The number of elements requested per page.
+	 * @param listType   The type of a list of the elements, for Gson.
+	 */
+	PagedIterable(Connection connection, String url, int pageSize, Type listType) {
+		this.connection = connection;
+		this.url = url;
+		this.pageSize = pageSize;
+		this.listType = listType;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+
+			private Iterator<T> current = Collections.emptyIterator();
+			private CompletableFuture<Page<T>> next;
+			private boolean first = true;
+
+			@Override
+			public boolean hasNext() {
+				while (!current.hasNext()) {
+					if (first) {
+						first = false;
+						use(fetch(null));
+					} else if (next == null) {
+						return false;
+					} else {
+						use(next.join());
+					}
+				}
+				return true;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return current.next();
+			}
+
+			/**
+			 * Starts iterating a page, and requests the next one if there is any.
+			 */
+			private void use(Page<T> page) {
+				current = page.items().iterator();
+				next = page.nextCursor() == null ? null
+						: CompletableFuture.supplyAsync(() -> fetch(page.nextCursor()), PREFETCH);
+			}
+		};
+	}
+
+	/**
+	 * Requests the page after the given cursor.
+	 */
+	private Page<T> fetch(String after) {
+		String pageUrl = url + "?limit=" + pageSize + (after == null ? "" : "&after=" + after);
+		try {
+			HttpResponse<InputStream> response = connection.doGetResponse(pageUrl);
+			try (InputStream body = response.body()) {
+				List<T> items = ApiService.GSON.fromJson(new InputStreamReader(body, StandardCharsets.UTF_8),
+						listType);
+				return new Page<>(items, response.headers().firstValue(NEXT_CURSOR_HEADER).orElse(null));
+			}
+		} catch (Exception e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * A page of elements and the cursor of the next one, {@code null} if it is
+	 * the last one.
+	 */
+	private record Page<T>(List<T> items, String nextCursor) {
+	}
+}
@@ -0,0 +1,139 @@
+package com.sitelicon.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the responses of the API, by URL, that keeps the least
+ * recently used ones when it is full. Every entry keeps the JSON body of the
+ * response along with its validators, the {@code ETag} and
+ * {@code Last-Modified} headers, so the next request of the same URL can be
+ * revalidated with {@code If-None-Match} and {@code If-Modified-Since} and the
+ * body is only sent again when the entity has changed.
+ * <p>
+ * The body is kept as JSON and decoded on every use, so the DTOs returned to
+ * the callers can be modified without changing the cached entity.
+ * <p>
+ * The API services share the cache returned by {@link #getDefault()}, whose
+ * size is set with the {@code client.cache.size} system property. It is 0 by
+ * default, which disables the cache.
+ *
+ * @see Connection#doGet(String, ResponseCache)
+ */
+public class ResponseCache {
+
+	private static final ResponseCache DEFAULT = new ResponseCache(Integer.getInteger("client.cache.size", 0));
+
+	private final int maxEntries;
+	private final Map<String, Entry> entries;
+	private final LongAdder revalidated = new LongAdder();
+	private final LongAdder refreshed = new LongAdder();
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param maxEntries The maximum number of responses kept. With 0 no response
+	 *                   is kept.
+	 */
+	public ResponseCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > ResponseCache.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache shared by the API services, sized with the system
+	 * property.
+	 *
+	 * @return The shared cache.
+	 */
+	public static ResponseCache getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns the cached response of a URL, marking it as the most recently used.
+	 *
+	 * @param url The URL of the request.
+	 * @return The cached response, or {@code null} if there isn't any.
+	 */
+	public Entry get(String url) {
+		if (maxEntries == 0) {
+			return null;
+		}
+		synchronized (entries) {
+			return entries.get(url);
+		}
+	}
+
+	/**
+	 * Keeps the response of a URL, if it has a validator to revalidate it with.
+	 *
+	 * @param url   The URL of the request.
+	 * @param entry The response.
+	 */
+	public void put(String url, Entry entry) {
+		if (maxEntries == 0 || (entry.eTag() == null && entry.lastModified() == null)) {
+			return;
+		}
+		synchronized (entries) {
+			entries.put(url, entry);
+		}
+	}
+
+	/**
+	 * Removes the cached response of a URL, after the entity has been changed or
+	 * deleted.
+	 *
+	 * @param url The URL of the entity.
+	 */
+	public void invalidate(String url) {
+		if (maxEntries == 0) {
+			return;
+		}
+		synchronized (entries) {
+			entries.remove(url);
+		}
+	}
+
+	/**
+	 * Counts a cached response that was still valid, so the server sent no body.
+	 */
+	void countRevalidated() {
+		revalidated.increment();
+	}
+
+	/**
+	 * Counts a cached response that had changed, so the server sent it again.
+	 */
+	void countRefreshed() {
+		refreshed.increment();
+	}
+
+	/**
+	 * Returns the number of requests answered with a cached response because the
+	 * server confirmed it was still valid.
+	 */
+	public long getRevalidated() {
+		return revalidated.sum();
+	}
+
+	/**
+	 * Returns the number of requests with a cached response that had changed.
+	 */
+	public long getRefreshed() {
+		return refreshed.sum();
+	}
+
+	/**
+	 * A cached response: its JSON body and its validators, {@code null} if the
+	 * response didn't have them.
+	 */
+	public record Entry(String body, String eTag, String lastModified) {
+	}
+}
@@ -0,0 +1,90 @@
+package com.sitelicon.api;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces identical calls made at the same time by several threads: while a
+ * call with a given key is running, the other callers with the same key wait
+ * for it and get its result, or its exception, instead of making their own.
+ * Once the call finishes its key is removed, so the next call runs again and
+ * gets fresh data.
+ * <p>
+ * The API services share the instance returned by {@link #getDefault()} for
+ * their GET requests, keyed by URL, so concurrent lookups of the same entity
+ * send one request and decode one response. The callers that share a call get
+ * the same result object.
+ */
+public class SingleFlight {
+
+	private static final SingleFlight DEFAULT = new SingleFlight();
+
+	private final Map<String, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+	private final LongAdder executed = new LongAdder();
+	private final LongAdder saved = new LongAdder();
+
+	/**
+	 * Returns the instance shared by the API services.
+	 *
+	 * @return The shared instance.
+	 */
+	public static SingleFlight getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Runs a call, unless another one with the same key is running, in which case
+	 * it waits for that one instead.
+	 *
+	 * @param key  The key that identifies the call, such as the URL requested.
+	 * @param call The call to run.
+	 * @return The result of the call, maybe run by another thread.
+	 * @throws Exception The exception thrown by the call, maybe run by another
+	 *                   thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T execute(String key, Callable<T> call) throws Exception {
+		CompletableFuture<Object> own = new CompletableFuture<>();
+		CompletableFuture<Object> running = calls.putIfAbsent(key, own);
+		if (running != null) {
+			saved.increment();
+			try {
+				return (T) running.get();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+			}
+		}
+
+		executed.increment();
+		T result;
+		try {
+			result = call.call();
+		} catch (Throwable e) {
+			calls.remove(key, own);
+			own.completeExceptionally(e);
+			throw e;
+		}
+		// Removed before completing, so the callers that come later run a new call
+		calls.remove(key, own);
+		own.complete(result);
+		return result;
+	}
+
+	/**
+	 * Returns the number of calls run.
+	 */
+	public long getExecuted() {
+		return executed.sum();
+	}
+
+	/**
+	 * Returns the number of calls saved because an identical one was running.
+	 */
+	public long getSaved() {
+		return saved.sum();
+	}
+}
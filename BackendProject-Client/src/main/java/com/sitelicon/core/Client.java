@@ -61,7 +61,7 @@ public class Client {
 	 * @param sc A Scanner object for reading user input.
 	 * @see #printUsersMenu()
 	 * @see UserService#findUserById(Scanner)
-	 * @see UserService#obtainAllUsers()
+	 * @see UserService#obtainAllUsers(Scanner)
 	 * @see UserService#createUser(Scanner)
 	 * @see UserService#updateUser(Scanner)
 	 * @see UserService#deleteUser(Scanner)
@@ -80,7 +80,7 @@ public class Client {
 				userService.findUserById(sc);
 				break;
 			case "2":
-				userService.obtainAllUsers();
+				userService.obtainAllUsers(sc);
 				break;
 			case "3":
 				userService.createUser(sc);
@@ -106,7 +106,7 @@ public class Client {
 	 * @param sc A Scanner object for reading user input.
 	 * @see #printContactMenu()
 	 * @see ContactService#findContactById(Scanner)
-	 * @see ContactService#obtainAllContacts()
+	 * @see ContactService#obtainAllContacts(Scanner)
 	 * @see ContactService#createContact(Scanner)
 	 * @see ContactService#updateContact(Scanner)
 	 * @see ContactService#deleteContact(Scanner)
@@ -124,7 +124,7 @@ public class Client {
 				contactService.findContactById(sc);
 				break;
 			case "2":
-				contactService.obtainAllContacts();
+				contactService.obtainAllContacts(sc);
 				break;
 			case "3":
 				contactService.createContact(sc);
@@ -0,0 +1,333 @@
+package com.sitelicon.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.Histogram;
+
+import com.sitelicon.api.ApiContactService;
+import com.sitelicon.api.ApiService.Tagged;
+import com.sitelicon.api.ApiUserService;
+import com.sitelicon.dto.ContactDTO;
+import com.sitelicon.dto.Reason;
+import com.sitelicon.dto.UserDTO;
+import com.sitelicon.exceptions.NotFoundException;
+import com.sitelicon.exceptions.PreconditionFailedException;
+import com.sitelicon.load.OperationStats;
+import com.sitelicon.util.Utilities;
+
+/**
+ * Runs the commands of a script, one per line, without the interactive menus.
+ * The commands are run by a bounded pool of workers over the API services, so
+ * several of them run at the same time and their order isn't kept: a command
+ * that depends on another one must go in a later script.
+ * <p>
+ * The commands are:
+ * <ul>
+ * <li>{@code get-user <id>}, {@code get-contact <id>}: Prints the entity.</li>
+ * <li>{@code list-users}, {@code list-contacts}: Prints the number of
+ * entities.</li>
+ * <li>{@code create-user name=... lastName=... phoneNumber=... email=... password=...}</li>
+ * <li>{@code create-contact name=... email=... reason=... message=...}</li>
+ * <li>{@code update-user <id> field=value ...},
+ * {@code update-contact <id> field=value ...}: Changes only the fields
+ * given. The entity is read and written back with its entity tag, so the line
+ * fails if another request changes the entity in between instead of
+ * overwriting that change.</li>
+ * <li>{@code delete-user <id>}, {@code delete-contact <id>}</li>
+ * </ul>
+ * Values with spaces go between double quotes, such as
+ * {@code message="Hello there"}. Empty lines and lines starting with {@code #}
+ * are skipped. The passwords are hashed as in the interactive mode.
+ * <p>
+ * A failed command is reported with its line number and doesn't stop the rest.
+ * At the end, the number of commands run and failed, the throughput and the
+ * latency percentiles of every command are printed.
+ *
+ * @see OperationStats
+ */
+public class ScriptRunner {
+
+	private final ApiUserService apiUserService = new ApiUserService();
+	private final ApiContactService apiContactService = new ApiContactService();
+	private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+	private final int workers;
+
+	/**
+	 * Creates a runner.
+	 *
+	 * @param workers The number of commands run at the same time.
+	 */
+	public ScriptRunner(int workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * Runs the commands of a script and prints the summary.
+	 *
+	 * @param script The file of the script, or {@code null} to read it from the
+	 *               standard input.
+	 * @return The number of commands that failed.
+	 * @throws IOException If the script can't be read.
+	 */
+	public long run(Path script) throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		// Keeps the lines read ahead bounded, so a long script isn't held in memory
+		Semaphore queued = new Semaphore(workers * 2);
+		long start = System.nanoTime();
+
+		try (BufferedReader reader = script == null
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+				: Files.newBufferedReader(script)) {
+			String line;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				String command = line.trim();
+				if (command.isEmpty() || command.startsWith("#")) {
+					continue;
+				}
+				int lineNumber = number;
+				queued.acquire();
+				executor.execute(() -> {
+					try {
+						runLine(lineNumber, command);
+					} finally {
+						queued.release();
+					}
+				});
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+
+		return printSummary(System.nanoTime() - start);
+	}
+
+	/**
+	 * Runs the command of a line, recording its latency and reporting it if it
+	 * fails.
+	 */
+	private void runLine(int number, String line) {
+		String name = line.split("\\s+", 2)[0].toLowerCase(Locale.ROOT);
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			List<String> tokens = tokenize(line);
+			String output = execute(name, tokens.subList(1, tokens.size()));
+			failed = false;
+			if (output != null) {
+				System.out.println("line " + number + ": " + output);
+			}
+		} catch (NotFoundException e) {
+			System.err.println("line " + number + ": " + name + " failed: not found");
+		} catch (PreconditionFailedException e) {
+			System.err.println("line " + number + ": " + name + " failed: changed by another request since it was read");
+		} catch (ConnectException e) {
+			System.err.println("line " + number + ": " + name + " failed: couldn't connect to the server");
+		} catch (Exception e) {
+			System.err.println("line " + number + ": " + name + " failed: " + e.getMessage());
+		} finally {
+			stats.computeIfAbsent(name, key -> new OperationStats()).record(System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * Runs a command.
+	 *
+	 * @return The output of the command, or {@code null} if it has none.
+	 */
+	private String execute(String name, List<String> args) throws Exception {
+		switch (name) {
+		case "get-user":
+			return apiUserService.findUserById(id(args)).toString();
+		case "get-contact":
+			return apiContactService.findContactById(id(args)).toString();
+		case "list-users":
+			try (Stream<UserDTO> users = apiUserService.streamUsers()) {
+				return users.count() + " users";
+			}
+		case "list-contacts":
+			try (Stream<ContactDTO> contacts = apiContactService.streamContacts()) {
+				return contacts.count() + " contacts";
+			}
+		case "create-user": {
+			Map<String, String> fields = fields(args, 0);
+			await(apiUserService.createUserAsync(applyTo(new UserDTO(null, null, null, null, null), fields)));
+			return null;
+		}
+		case "create-contact": {
+			Map<String, String> fields = fields(args, 0);
+			await(apiContactService.createContactAsync(applyTo(new ContactDTO(null, null, null, null), fields)));
+			return null;
+		}
+		case "update-user": {
+			Map<String, String> fields = fields(args, 1);
+			Tagged<UserDTO> user = apiUserService.findTaggedUserById(id(args));
+			await(apiUserService.updateUserAsync(applyTo(user.value(), fields), user.eTag()));
+			return null;
+		}
+		case "update-contact": {
+			Map<String, String> fields = fields(args, 1);
+			Tagged<ContactDTO> contact = apiContactService.findTaggedContactById(id(args));
+			await(apiContactService.updateContactAsync(applyTo(contact.value(), fields), contact.eTag()));
+			return null;
+		}
+		case "delete-user":
+			await(apiUserService.deleteUserAsync(id(args)));
+			return null;
+		case "delete-contact":
+			await(apiContactService.deleteContactAsync(String.valueOf(id(args))));
+			return null;
+		default:
+			throw new IllegalArgumentException("unknown command");
+		}
+	}
+
+	private static long id(List<String> args) {
+		if (args.isEmpty()) {
+			throw new IllegalArgumentException("missing id");
+		}
+		try {
+			return Long.parseLong(args.get(0));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid id: " + args.get(0));
+		}
+	}
+
+	/**
+	 * Reads the {@code field=value} arguments, after the given number of
+	 * positional ones.
+	 */
+	private static Map<String, String> fields(List<String> args, int positional) {
+		Map<String, String> fields = new HashMap<>();
+		for (String arg : args.subList(Math.min(positional, args.size()), args.size())) {
+			int separator = arg.indexOf('=');
+			if (separator < 1) {
+				throw new IllegalArgumentException("invalid field: " + arg);
+			}
+			fields.put(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		return fields;
+	}
+
+	private static UserDTO applyTo(UserDTO user, Map<String, String> fields) {
+		fields.forEach((field, value) -> {
+			switch (field) {
+			case "name" -> user.setName(value);
+			case "lastName" -> user.setLastName(value);
+			case "phoneNumber" -> user.setPhoneNumber(value);
+			case "email" -> user.setEmail(value);
+			case "password" -> user.setPassword(Utilities.hashPassword(value));
+			default -> throw new IllegalArgumentException("unknown user field: " + field);
+			}
+		});
+		return user;
+	}
+
+	private static ContactDTO applyTo(ContactDTO contact, Map<String, String> fields) {
+		fields.forEach((field, value) -> {
+			switch (field) {
+			case "name" -> contact.setName(value);
+			case "email" -> contact.setEmail(value);
+			case "reason" -> contact.setReason(Reason.valueOf(value.toUpperCase(Locale.ROOT)));
+			case "message" -> contact.setMessage(value);
+			default -> throw new IllegalArgumentException("unknown contact field: " + field);
+			}
+		});
+		return contact;
+	}
+
+	/**
+	 * Waits for an asynchronous request, throwing its exception if it failed.
+	 */
+	private static void await(CompletableFuture<?> request) throws Exception {
+		try {
+			request.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Splits a line by spaces, keeping together the text between double quotes.
+	 */
+	static List<String> tokenize(String line) {
+		List<String> tokens = new ArrayList<>();
+		StringBuilder token = new StringBuilder();
+		boolean quoted = false;
+		boolean pending = false;
+		for (char c : line.toCharArray()) {
+			if (c == '"') {
+				quoted = !quoted;
+				pending = true;
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (pending) {
+					tokens.add(token.toString());
+					token.setLength(0);
+					pending = false;
+				}
+			} else {
+				token.append(c);
+				pending = true;
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("unclosed quotes");
+		}
+		if (pending) {
+			tokens.add(token.toString());
+		}
+		return tokens;
+	}
+
+	/**
+	 * Prints the number of commands run and failed, the throughput, and a line
+	 * per command with its latency percentiles in milliseconds.
+	 *
+	 * @return The number of commands that failed.
+	 */
+	private long printSummary(long elapsedNanos) {
+		Histogram all = new Histogram(3);
+		long failed = 0;
+		double seconds = elapsedNanos / 1e9;
+		System.out.printf("%n%-16s %9s %8s %9s %9s %9s %9s%n", "command", "count", "failed", "p50", "p90", "p99",
+				"max");
+		for (Map.Entry<String, OperationStats> entry : new TreeMap<>(stats).entrySet()) {
+			Histogram latencies = entry.getValue().getLatencies();
+			printLine(entry.getKey(), latencies, entry.getValue().getErrors());
+			all.add(latencies);
+			failed += entry.getValue().getErrors();
+		}
+		printLine("total", all, failed);
+		System.out.printf("%d commands in %.2f s with %d workers: %.1f commands/s%n", all.getTotalCount(), seconds,
+				workers, all.getTotalCount() / seconds);
+		return failed;
+	}
+
+	private static void printLine(String name, Histogram latencies, long failed) {
+		System.out.printf("%-16s %9d %8d %9.2f %9.2f %9.2f %9.2f%n", name, latencies.getTotalCount(), failed,
+				latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(90) / 1000.0,
+				latencies.getValueAtPercentile(99) / 1000.0, latencies.getMaxValue() / 1000.0);
+	}
+}
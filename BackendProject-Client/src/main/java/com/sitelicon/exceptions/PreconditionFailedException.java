@@ -0,0 +1,12 @@
+package com.sitelicon.exceptions;
+
+/**
+ * Exception thrown to indicate that a conditional request was rejected.
+ * <p>
+ * This exception is used when a resource is changed or deleted only if it still
+ * has the entity tag sent in the {@code If-Match} header, and another request
+ * has changed it since it was read.
+ */
+public class PreconditionFailedException extends Exception {
+
+}
@@ -0,0 +1,128 @@
+package com.sitelicon.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import org.HdrHistogram.Histogram;
+
+import com.sitelicon.api.ApiUserService;
+
+/**
+ * Benchmark of repeated {@link ApiUserService#findUserById(long)} calls, which
+ * share one {@link HttpClient} and reuse its connections, against the same
+ * requests sent with a new {@link HttpClient} each, as the client did before.
+ * <p>
+ * It is run by passing {@code --connection-benchmark} to the client, followed
+ * by {@code --server-jar} with the executable jar of the server, which is
+ * started on a temporary database, or {@code --url} with the base URL of a
+ * server already running. {@code --calls} sets the number of calls measured of
+ * every kind (2000 by default). A user is created for the lookups.
+ *
+ * @see ServerProcess
+ */
+public class ConnectionBenchmark {
+
+	private static final int WARMUP_CALLS = 200;
+
+	/**
+	 * Runs the benchmark and prints the latencies of both kinds of calls.
+	 *
+	 * @param args The options of the benchmark.
+	 * @throws Exception If the server can't be started or a call fails.
+	 */
+	public static void run(String[] args) throws Exception {
+		Path jar = null;
+		String url = null;
+		int calls = 2000;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--server-jar":
+				jar = Path.of(args[i + 1]);
+				break;
+			case "--url":
+				url = args[i + 1];
+				break;
+			case "--calls":
+				calls = Integer.parseInt(args[i + 1]);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+
+		if (jar != null) {
+			try (ServerProcess server = ServerProcess.start(jar, null)) {
+				run(server.getUrl(), calls);
+			}
+		} else if (url != null) {
+			run(url, calls);
+		} else {
+			throw new IllegalArgumentException("Either --server-jar or --url must be given");
+		}
+	}
+
+	private static void run(String url, int calls) throws Exception {
+		// The API services read the base URL when they are created
+		System.setProperty("client.api.url", url);
+		ApiUserService apiUserService = new ApiUserService();
+		long id = createUser(url);
+
+		Histogram newClients = new Histogram(3);
+		Histogram sharedClient = new Histogram(3);
+		for (int i = 0; i < WARMUP_CALLS + calls; i++) {
+			long start = System.nanoTime();
+			findWithNewClient(url + "/users/" + id);
+			record(newClients, start, i);
+
+			start = System.nanoTime();
+			apiUserService.findUserById(id);
+			record(sharedClient, start, i);
+		}
+
+		System.out.printf("%n%-14s %9s %9s %9s %9s%n", "client", "mean", "p50", "p99", "max");
+		print("new per call", newClients);
+		print("shared", sharedClient);
+	}
+
+	/**
+	 * Sends a GET request with a new {@link HttpClient}, closed afterwards.
+	 */
+	private static void findWithNewClient(String url) throws Exception {
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+					HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new Exception("Error: " + response.statusCode());
+			}
+		}
+	}
+
+	private static long createUser(String url) throws Exception {
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url + "/users/bulk"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString("[{\"name\":\"Benchmark\",\"lastName\":\"User\","
+							+ "\"phoneNumber\":\"600000000\",\"email\":\"benchmark@example.com\"}]"))
+					.build(), HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 201) {
+				throw new Exception("Error: " + response.statusCode());
+			}
+			return Long.parseLong(response.body().replaceAll("[\\[\\]]", ""));
+		}
+	}
+
+	private static void record(Histogram histogram, long start, int call) {
+		if (call >= WARMUP_CALLS) {
+			histogram.recordValue((System.nanoTime() - start) / 1000);
+		}
+	}
+
+	private static void print(String name, Histogram latencies) {
+		System.out.printf("%-14s %7.2fms %7.2fms %7.2fms %7.2fms%n", name, latencies.getMean() / 1000,
+				latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+				latencies.getMaxValue() / 1000.0);
+	}
+}
@@ -0,0 +1,314 @@
+package com.sitelicon.load;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.HdrHistogram.Histogram;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.sitelicon.dto.ContactDTO;
+import com.sitelicon.dto.Reason;
+import com.sitelicon.dto.UserDTO;
+
+/**
+ * Load test that replays a mix of the CRUD operations of the users and contacts
+ * API at a fixed arrival rate, and reports the latency percentiles, throughput
+ * and error rate of every operation.
+ * <p>
+ * The requests are started on a fixed schedule whatever the server takes to
+ * answer them (an open model), and their latency is measured from the moment
+ * they should have been sent. So when the server falls behind, the requests
+ * that pile up are counted with the time they waited, instead of being sent
+ * later and hiding it (coordinated omission).
+ * <p>
+ * Before the test, the users and contacts read and updated are created, plus
+ * the ones that will be deleted, with some slack as the operations are picked
+ * at random, so every delete finds its row. If a delete still finds none left,
+ * it is skipped and counted in the report. All the random choices come from
+ * the same seed, so two runs send the same requests.
+ *
+ * @see LoadTestSettings
+ * @see OperationStats
+ */
+public class LoadTest {
+
+	private static final int SEED_CHUNK_SIZE = 1000;
+
+	/**
+	 * Share of deletable rows created on top of the expected number of deletes,
+	 * plus {@link #DELETE_SLACK_MIN} more.
+	 */
+	private static final double DELETE_SLACK = 0.1;
+	private static final int DELETE_SLACK_MIN = 100;
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+	private static final Type ID_LIST = new TypeToken<List<Long>>() {
+	}.getType();
+
+	private final LoadTestSettings settings;
+	private final Gson gson = new Gson();
+	private final Random random;
+	private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+	private String url;
+	private HttpClient client;
+	private long[] userIds;
+	private long[] contactIds;
+	private final Queue<Long> deletableUsers = new ConcurrentLinkedQueue<>();
+	private final Queue<Long> deletableContacts = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Deletes not sent because there was no row left to delete.
+	 */
+	private long skipped;
+
+	public LoadTest(LoadTestSettings settings) {
+		this.settings = settings;
+		this.random = new Random(settings.getRandomSeed());
+		settings.getMix().keySet().forEach(operation -> stats.put(operation, new OperationStats()));
+	}
+
+	/**
+	 * Runs the test against the server of the settings, starting it first if a
+	 * jar is given, and prints the report.
+	 *
+	 * @throws Exception If the server can't be started or the data of the test
+	 *                   can't be created.
+	 */
+	public void run() throws Exception {
+		if (settings.getServerJar() != null) {
+			try (ServerProcess server = ServerProcess.start(settings.getServerJar(), settings.getProfile())) {
+				run(server.getUrl());
+			}
+		} else {
+			run(settings.getUrl());
+		}
+	}
+
+	private void run(String url) throws Exception {
+		this.url = url;
+		try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5)).build()) {
+			this.client = client;
+			seed();
+			System.out.println("Running " + settings.getRate() + " requests/s for " + settings.getWarmup()
+					+ " s of warmup and " + settings.getDuration() + " s measured");
+			schedule();
+		}
+		printReport();
+	}
+
+	/**
+	 * Creates the users and contacts used by the test through the bulk
+	 * endpoints.
+	 */
+	private void seed() throws Exception {
+		long requests = (long) settings.getRate() * (settings.getWarmup() + settings.getDuration());
+		int deletedUsers = deletable(requests, Operation.DELETE_USER);
+		int deletedContacts = deletable(requests, Operation.DELETE_CONTACT);
+		System.out.println("Creating " + (settings.getRows() + deletedUsers) + " users and "
+				+ (settings.getRows() + deletedContacts) + " contacts");
+
+		List<Long> users = create("/users/bulk", settings.getRows() + deletedUsers, i -> newUser());
+		List<Long> contacts = create("/contacts/bulk", settings.getRows() + deletedContacts, i -> newContact());
+		userIds = users.subList(0, settings.getRows()).stream().mapToLong(Long::longValue).toArray();
+		contactIds = contacts.subList(0, settings.getRows()).stream().mapToLong(Long::longValue).toArray();
+		deletableUsers.addAll(users.subList(settings.getRows(), users.size()));
+		deletableContacts.addAll(contacts.subList(settings.getRows(), contacts.size()));
+	}
+
+	/**
+	 * Gets the number of rows to create for a delete operation: the expected
+	 * number of deletes plus some slack, as the operations are picked at random
+	 * and can exceed their share. None if the operation isn't in the mix.
+	 */
+	private int deletable(long requests, Operation operation) {
+		double expected = requests * settings.shareOf(operation);
+		return expected == 0 ? 0 : (int) Math.ceil(expected * (1 + DELETE_SLACK)) + DELETE_SLACK_MIN;
+	}
+
+	private List<Long> create(String path, int count, Function<Integer, Object> factory) throws Exception {
+		List<Long> ids = new ArrayList<>(count);
+		for (int from = 0; from < count; from += SEED_CHUNK_SIZE) {
+			List<Object> chunk = new ArrayList<>();
+			for (int i = from; i < Math.min(count, from + SEED_CHUNK_SIZE); i++) {
+				chunk.add(factory.apply(i));
+			}
+			HttpResponse<String> response = client.send(post(path, chunk), HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 201) {
+				throw new Exception("Error: " + response.statusCode());
+			}
+			ids.addAll(gson.fromJson(response.body(), ID_LIST));
+		}
+		return ids;
+	}
+
+	/**
+	 * Starts every request at its time in the schedule, without waiting for the
+	 * previous ones, and waits for all of them to finish. The requests started
+	 * during the warmup aren't recorded.
+	 */
+	private void schedule() throws InterruptedException {
+		long total = (long) settings.getRate() * (settings.getWarmup() + settings.getDuration());
+		long warmupRequests = (long) settings.getRate() * settings.getWarmup();
+		double interval = 1_000_000_000.0 / settings.getRate();
+		List<Operation> operations = new ArrayList<>(settings.getMix().keySet());
+		int[] weights = operations.stream().mapToInt(settings.getMix()::get).toArray();
+		int totalWeight = settings.getMix().values().stream().mapToInt(Integer::intValue).sum();
+
+		CountDownLatch finished = new CountDownLatch((int) total);
+		long start = System.nanoTime();
+		for (long i = 0; i < total; i++) {
+			long intended = start + (long) (i * interval);
+			long wait = intended - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+
+			Operation operation = pick(operations, weights, totalWeight);
+			HttpRequest request = request(operation);
+			if (request == null) {
+				skipped++;
+				finished.countDown();
+				continue;
+			}
+			OperationStats operationStats = i < warmupRequests ? null : stats.get(operation);
+			client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.whenComplete((response, error) -> {
+						if (operationStats != null) {
+							operationStats.record(System.nanoTime() - intended,
+									error != null || response.statusCode() >= 400);
+						}
+						finished.countDown();
+					});
+		}
+		finished.await();
+	}
+
+	private Operation pick(List<Operation> operations, int[] weights, int totalWeight) {
+		int value = random.nextInt(totalWeight);
+		for (int i = 0; i < weights.length; i++) {
+			value -= weights[i];
+			if (value < 0) {
+				return operations.get(i);
+			}
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * Builds the request of an operation.
+	 *
+	 * @return The request, or {@code null} for a delete with no row left.
+	 */
+	private HttpRequest request(Operation operation) {
+		switch (operation) {
+		case GET_USER:
+			return get("/users/" + randomId(userIds));
+		case LIST_USERS:
+			return get("/users?after=" + randomId(userIds) + "&limit=20");
+		case CREATE_USER:
+			return post("/users", newUser());
+		case UPDATE_USER:
+			return put("/users/" + randomId(userIds), newUser());
+		case DELETE_USER:
+			return delete("/users/", deletableUsers);
+		case GET_CONTACT:
+			return get("/contacts/" + randomId(contactIds));
+		case LIST_CONTACTS:
+			return get("/contacts?after=" + randomId(contactIds) + "&limit=20");
+		case CREATE_CONTACT:
+			return post("/contacts", newContact());
+		case UPDATE_CONTACT:
+			return put("/contacts/" + randomId(contactIds), newContact());
+		case DELETE_CONTACT:
+			return delete("/contacts/", deletableContacts);
+		default:
+			throw new IllegalArgumentException("Unknown operation: " + operation);
+		}
+	}
+
+	private long randomId(long[] ids) {
+		return ids[random.nextInt(ids.length)];
+	}
+
+	private UserDTO newUser() {
+		int n = random.nextInt(1_000_000);
+		return new UserDTO("Load", "User " + n, "600000000", "user" + n + "@example.com", "password");
+	}
+
+	private ContactDTO newContact() {
+		int n = random.nextInt(1_000_000);
+		Reason[] reasons = Reason.values();
+		return new ContactDTO("Contact " + n, "contact" + n + "@example.com", reasons[random.nextInt(reasons.length)],
+				"Load test message " + n);
+	}
+
+	private HttpRequest get(String path) {
+		return builder(path).GET().build();
+	}
+
+	private HttpRequest post(String path, Object body) {
+		return builder(path).header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(gson.toJson(body))).build();
+	}
+
+	private HttpRequest put(String path, Object body) {
+		return builder(path).header("Content-Type", "application/json")
+				.PUT(HttpRequest.BodyPublishers.ofString(gson.toJson(body))).build();
+	}
+
+	private HttpRequest delete(String path, Queue<Long> ids) {
+		Long id = ids.poll();
+		return id == null ? null : builder(path + id).DELETE().build();
+	}
+
+	private HttpRequest.Builder builder(String path) {
+		return HttpRequest.newBuilder(URI.create(url + path)).timeout(REQUEST_TIMEOUT);
+	}
+
+	/**
+	 * Prints a line per operation, and one for all of them, with the number of
+	 * requests, the throughput, the error rate and the latency percentiles in
+	 * milliseconds.
+	 */
+	private void printReport() {
+		System.out.printf("%n%-16s %9s %9s %8s %9s %9s %9s %9s %9s%n", "operation", "requests", "req/s", "errors",
+				"p50", "p90", "p99", "p99.9", "max");
+		Histogram all = new Histogram(3);
+		long errors = 0;
+		for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+			Histogram latencies = entry.getValue().getLatencies();
+			printLine(entry.getKey().getLabel(), latencies, entry.getValue().getErrors());
+			all.add(latencies);
+			errors += entry.getValue().getErrors();
+		}
+		printLine("total", all, errors);
+		if (skipped > 0) {
+			System.out.println("Skipped " + skipped + " deletes with no row left to delete");
+		}
+	}
+
+	private void printLine(String name, Histogram latencies, long errors) {
+		long count = latencies.getTotalCount();
+		System.out.printf("%-16s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, count,
+				count / (double) settings.getDuration(), count == 0 ? 0 : 100.0 * errors / count,
+				latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(90) / 1000.0,
+				latencies.getValueAtPercentile(99) / 1000.0, latencies.getValueAtPercentile(99.9) / 1000.0,
+				latencies.getMaxValue() / 1000.0);
+	}
+}
@@ -0,0 +1,178 @@
+package com.sitelicon.load;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test, read from the command-line arguments of the client
+ * after {@code --load-test}:
+ * <ul>
+ * <li>{@code --rate}: Requests started per second (200 by default).</li>
+ * <li>{@code --duration}: Seconds measured (60 by default).</li>
+ * <li>{@code --warmup}: Seconds run before measuring (10 by default).</li>
+ * <li>{@code --mix}: Weight of every operation, such as
+ * {@code get-user=40,create-user=10}. The operations left out aren't run.</li>
+ * <li>{@code --rows}: Users and contacts created before the test, to be read
+ * and updated (1000 by default).</li>
+ * <li>{@code --random-seed}: Seed of the random choices, so two runs send the
+ * same sequence of requests (42 by default).</li>
+ * <li>{@code --server-jar}: Executable jar of the server, started for the test
+ * on a temporary SQLite file.</li>
+ * <li>{@code --profile}: Profile the server is started with, such as
+ * {@code sqlite-perf}.</li>
+ * <li>{@code --url}: Base URL of a server already running, instead of starting
+ * one. Its data is modified by the test.</li>
+ * </ul>
+ *
+ * @see LoadTest
+ */
+public class LoadTestSettings {
+
+	/**
+	 * The mix used when the {@code --mix} option isn't given: mostly reads, as
+	 * the client does.
+	 */
+	private static final String DEFAULT_MIX = "get-user=30,list-users=5,create-user=5,update-user=5,delete-user=5,"
+			+ "get-contact=30,list-contacts=5,create-contact=5,update-contact=5,delete-contact=5";
+
+	private int rate = 200;
+	private int duration = 60;
+	private int warmup = 10;
+	private Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+	private int rows = 1000;
+	private long randomSeed = 42;
+	private Path serverJar;
+	private String profile;
+	private String url;
+
+	/**
+	 * Reads the settings from the command-line arguments.
+	 *
+	 * @param args The arguments, as pairs of option and value.
+	 * @return The settings, with the default value of the options not given.
+	 * @throws IllegalArgumentException If an option is unknown, has no value or an
+	 *                                  invalid one, or if neither a server jar nor
+	 *                                  a URL is given.
+	 */
+	public static LoadTestSettings parse(String[] args) {
+		LoadTestSettings settings = new LoadTestSettings();
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("Missing value of " + args[i]);
+			}
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "--rate":
+				settings.rate = positive(args[i], value);
+				break;
+			case "--duration":
+				settings.duration = positive(args[i], value);
+				break;
+			case "--warmup":
+				settings.warmup = Integer.parseInt(value);
+				break;
+			case "--mix":
+				settings.mix = parseMix(value);
+				break;
+			case "--rows":
+				settings.rows = positive(args[i], value);
+				break;
+			case "--random-seed":
+				settings.randomSeed = Long.parseLong(value);
+				break;
+			case "--server-jar":
+				settings.serverJar = Path.of(value);
+				break;
+			case "--profile":
+				settings.profile = value;
+				break;
+			case "--url":
+				settings.url = value;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		if ((settings.serverJar == null) == (settings.url == null)) {
+			throw new IllegalArgumentException("Either --server-jar or --url must be given");
+		}
+		return settings;
+	}
+
+	public int getRate() {
+		return rate;
+	}
+
+	public int getDuration() {
+		return duration;
+	}
+
+	public int getWarmup() {
+		return warmup;
+	}
+
+	public Map<Operation, Integer> getMix() {
+		return mix;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	public Path getServerJar() {
+		return serverJar;
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Returns the share of all the requests started for an operation.
+	 *
+	 * @param operation The operation.
+	 * @return The weight of the operation divided by the total weight.
+	 */
+	public double shareOf(Operation operation) {
+		int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+		return mix.getOrDefault(operation, 0) / (double) total;
+	}
+
+	private static Map<Operation, Integer> parseMix(String value) {
+		Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+		for (String entry : value.split(",")) {
+			String[] parts = entry.trim().split("=");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Invalid mix entry: " + entry);
+			}
+			int weight = Integer.parseInt(parts[1].trim());
+			if (weight < 0) {
+				throw new IllegalArgumentException("Invalid mix entry: " + entry);
+			}
+			if (weight > 0) {
+				mix.put(Operation.fromLabel(parts[0].trim()), weight);
+			}
+		}
+		if (mix.isEmpty()) {
+			throw new IllegalArgumentException("The mix has no operations");
+		}
+		return mix;
+	}
+
+	private static int positive(String option, String value) {
+		int number = Integer.parseInt(value);
+		if (number < 1) {
+			throw new IllegalArgumentException("The value of " + option + " must be positive");
+		}
+		return number;
+	}
+}
@@ -0,0 +1,46 @@
+package com.sitelicon.load;
+
+/**
+ * Enumeration of the operations of the API replayed by the load test, with the
+ * name used for them in the mix of the {@code --mix} option and in the report.
+ *
+ * @see LoadTestSettings
+ */
+public enum Operation {
+	GET_USER("get-user"),
+	LIST_USERS("list-users"),
+	CREATE_USER("create-user"),
+	UPDATE_USER("update-user"),
+	DELETE_USER("delete-user"),
+	GET_CONTACT("get-contact"),
+	LIST_CONTACTS("list-contacts"),
+	CREATE_CONTACT("create-contact"),
+	UPDATE_CONTACT("update-contact"),
+	DELETE_CONTACT("delete-contact");
+
+	private final String label;
+
+	Operation(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Finds an operation by its name in the mix.
+	 *
+	 * @param label The name of the operation, such as {@code get-user}.
+	 * @return The operation with that name.
+	 * @throws IllegalArgumentException If there isn't an operation with that name.
+	 */
+	public static Operation fromLabel(String label) {
+		for (Operation operation : values()) {
+			if (operation.label.equals(label)) {
+				return operation;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operation: " + label);
+	}
+}
@@ -0,0 +1,41 @@
+package com.sitelicon.load;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies and errors of the requests of one operation measured by the load
+ * test. The latencies are recorded in microseconds, with three significant
+ * digits, and can be recorded from several threads at once.
+ *
+ * @see LoadTest
+ */
+public class OperationStats {
+
+	private final Histogram latencies = new ConcurrentHistogram(3);
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * Records a finished request.
+	 *
+	 * @param latencyNanos The time from the moment the request should have been
+	 *                     sent until its response was received.
+	 * @param failed       Whether the request failed or got an error status.
+	 */
+	public void record(long latencyNanos, boolean failed) {
+		latencies.recordValue(Math.max(1, latencyNanos / 1000));
+		if (failed) {
+			errors.increment();
+		}
+	}
+
+	public Histogram getLatencies() {
+		return latencies;
+	}
+
+	public long getErrors() {
+		return errors.sum();
+	}
+}
@@ -0,0 +1,118 @@
+package com.sitelicon.load;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server started by the load test as a separate process, listening on a free
+ * port of localhost and storing its data in a temporary SQLite file that is
+ * deleted when it stops. The output of the server is written to a temporary
+ * log file, which is kept.
+ */
+public class ServerProcess implements AutoCloseable {
+
+	/**
+	 * Maximum time the server has to start.
+	 */
+	private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(120);
+
+	private final Process process;
+	private final Path database;
+	private final int port;
+
+	private ServerProcess(Process process, Path database, int port) {
+		this.process = process;
+		this.database = database;
+		this.port = port;
+	}
+
+	/**
+	 * Starts the server and waits until its health endpoint answers.
+	 *
+	 * @param jar     The executable jar of the server.
+	 * @param profile The profile the server is started with, or {@code null} for
+	 *                the default one.
+	 * @return The running server.
+	 * @throws IOException If the server can't be started, stops or doesn't
+	 *                     answer in time.
+	 */
+	public static ServerProcess start(Path jar, String profile) throws IOException, InterruptedException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		Path database = Files.createTempFile("load-test-", ".db");
+		Path log = Files.createTempFile("load-test-server-", ".log");
+
+		List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+				"-jar", jar.toString(), "--server.port=" + port, "--spring.datasource.url=jdbc:sqlite:" + database));
+		if (profile != null) {
+			command.add("--spring.profiles.active=" + profile);
+		}
+		System.out.println("Starting the server on port " + port + ", logging to " + log);
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+		ServerProcess server = new ServerProcess(process, database, port);
+
+		try {
+			server.awaitHealthy();
+		} catch (IOException | InterruptedException e) {
+			server.close();
+			throw e;
+		}
+		return server;
+	}
+
+	/**
+	 * Returns the base URL of the API of the server.
+	 */
+	public String getUrl() {
+		return "http://localhost:" + port + "/api";
+	}
+
+	/**
+	 * Stops the server, waiting for it to save its data, and deletes its
+	 * database.
+	 */
+	@Override
+	public void close() throws IOException, InterruptedException {
+		process.destroy();
+		if (!process.waitFor(30, TimeUnit.SECONDS)) {
+			process.destroyForcibly().waitFor();
+		}
+		Files.deleteIfExists(database);
+		Files.deleteIfExists(Path.of(database + "-wal"));
+		Files.deleteIfExists(Path.of(database + "-shm"));
+	}
+
+	private void awaitHealthy() throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+				.timeout(Duration.ofSeconds(1)).build();
+		long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			while (System.nanoTime() < deadline) {
+				if (!process.isAlive()) {
+					throw new IOException("The server stopped with exit code " + process.exitValue());
+				}
+				try {
+					if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+						return;
+					}
+				} catch (IOException e) {
+					// Not listening yet
+				}
+				Thread.sleep(250);
+			}
+		}
+		throw new IOException("The server didn't start in " + STARTUP_TIMEOUT.toSeconds() + " seconds");
+	}
+}
@@ -1,8 +1,8 @@
 package com.sitelicon.service;
 
 import java.net.ConnectException;
-import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
 
 import com.sitelicon.api.ApiContactService;
 import com.sitelicon.dto.ContactDTO;
@@ -28,6 +28,16 @@ public class ContactService {
 
 	private final ApiContactService apiContactService = new ApiContactService();
 
+	/**
+	 * Number of contacts fetched from the API per request.
+	 */
+	private static final int FETCH_SIZE = 100;
+
+	/**
+	 * Number of contacts printed before waiting for the user.
+	 */
+	private static final int PRINT_PAGE_SIZE = 10;
+
 	/**
 	 * Asks the user for a numeric ID, retrieves and prints information about the
 	 * contact found, or displays a message if the contact wasn't found.
@@ -57,36 +67,35 @@ public class ContactService {
 	}
 
 	/**
-	 * Retrieves and prints information about all contacts in the database.
+	 * Retrieves and prints information about all contacts in the database, a page
+	 * at a time.
 	 * 
 	 * <p>
-	 * This method calls the {@link ApiContactService#obtainAllContacts()} method to
-	 * retrieve a list of {@link ContactDTO} objects representing all contacts. It
-	 * then prints the information for each contact, including a separator line
-	 * between each contact's details. If there are no contacts in the database, it
-	 * prints a message indicating the absence of contacts.
+	 * This method iterates the contacts returned by
+	 * {@link ApiContactService#iterateContacts(int)}, which fetches them from the API a
+	 * page at a time as they are printed, and prints them with
+	 * {@link Utilities#printPaged(Scanner, Iterable, int)}, which waits for the
+	 * user between pages. If there are no contacts in the database, it prints a
+	 * message indicating the absence of contacts.
 	 * 
-	 * @see ApiContactService#obtainAllContacts()
+	 * @param sc A Scanner object for reading user input.
+	 * @see ApiContactService#iterateContacts(int)
 	 */
-	public void obtainAllContacts() {
+	public void obtainAllContacts(Scanner sc) {
 		System.out.println("\n-- Printing all contacts --");
 		try {
-			List<ContactDTO> contacts = apiContactService.obtainAllContacts();
-			if (!contacts.isEmpty()) {
-				for (ContactDTO contact : contacts) {
-					System.out.println(contact);
-					System.out.println("-------------------------");
-				}
-			} else {
+			if (Utilities.printPaged(sc, apiContactService.iterateContacts(FETCH_SIZE), PRINT_PAGE_SIZE) == 0) {
 				System.out.println("There aren't any contacts in the database");
 			}
-		} catch (ConnectException ce) {
-			System.err.println("Error ocurred while trying to connect to the server");
-			System.err.flush();
-		} catch (Exception e) {
-			System.err.println("An unexpected error ocurred while trying to obtain the contacts:");
-			System.err.flush();
-			e.printStackTrace();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof ConnectException) {
+				System.err.println("Error ocurred while trying to connect to the server");
+				System.err.flush();
+			} else {
+				System.err.println("An unexpected error ocurred while trying to obtain the contacts:");
+				System.err.flush();
+				e.getCause().printStackTrace();
+			}
 		}
 	}
 
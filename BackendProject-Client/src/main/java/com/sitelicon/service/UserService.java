@@ -1,8 +1,8 @@
 package com.sitelicon.service;
 
 import java.net.ConnectException;
-import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
 
 import com.sitelicon.api.ApiUserService;
 import com.sitelicon.dto.UserDTO;
@@ -26,6 +26,16 @@ import com.sitelicon.util.Utilities;
 public class UserService {
 	private final ApiUserService apiUserService = new ApiUserService();
 
+	/**
+	 * Number of users fetched from the API per request.
+	 */
+	private static final int FETCH_SIZE = 100;
+
+	/**
+	 * Number of users printed before waiting for the user.
+	 */
+	private static final int PRINT_PAGE_SIZE = 10;
+
 	/**
 	 * Asks the user for a numeric ID, retrieves and prints information about the
 	 * user found, or displays a message if the user wasn't found.
@@ -55,37 +65,35 @@ public class UserService {
 	}
 
 	/**
-	 * Retrieves and prints information about all users in the database.
+	 * Retrieves and prints information about all users in the database, a page
+	 * at a time.
 	 * 
 	 * <p>
-	 * This method calls the {@link ApiUserService#obtainAllUsers()} method to
-	 * retrieve a list of {@link UserDTO} objects representing all users. It then
-	 * prints the information for each user, including a separator line between each
-	 * user's details. If there are no users in the database, it prints a message
-	 * indicating the absence of users.
+	 * This method iterates the users returned by
+	 * {@link ApiUserService#iterateUsers(int)}, which fetches them from the API a
+	 * page at a time as they are printed, and prints them with
+	 * {@link Utilities#printPaged(Scanner, Iterable, int)}, which waits for the
+	 * user between pages. If there are no users in the database, it prints a
+	 * message indicating the absence of users.
 	 * 
-	 * @see ApiUserService#obtainAllUsers()
+	 * @param sc A Scanner object for reading user input.
+	 * @see ApiUserService#iterateUsers(int)
 	 */
-	public void obtainAllUsers() {
+	public void obtainAllUsers(Scanner sc) {
 		System.out.println("\n-- Printing all users --");
 		try {
-			List<UserDTO> users = apiUserService.obtainAllUsers();
-			if (!users.isEmpty()) {
-				for (UserDTO user : users) {
-					System.out.println(user);
-					System.out.println("-------------------------");
-				}
-			} else {
+			if (Utilities.printPaged(sc, apiUserService.iterateUsers(FETCH_SIZE), PRINT_PAGE_SIZE) == 0) {
 				System.out.println("There aren't any users in the database");
 			}
-
-		} catch (ConnectException ce) {
-			System.err.println("Error ocurred while trying to connect to the server");
-			System.err.flush();
-		} catch (Exception e) {
-			System.err.println("An unexpected error ocurred while trying to obtain the users:");
-			System.err.flush();
-			e.printStackTrace();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof ConnectException) {
+				System.err.println("Error ocurred while trying to connect to the server");
+				System.err.flush();
+			} else {
+				System.err.println("An unexpected error ocurred while trying to obtain the users:");
+				System.err.flush();
+				e.getCause().printStackTrace();
+			}
 		}
 	}
 
@@ -29,9 +29,11 @@ import com.sitelicon.dto.Reason;
  * select a reason and validates the input.</li>
  * <li>{@link #confirm(Scanner, String)}: Prompts the user for confirmation and
  * validates the input (Y/N).</li>
+ * <li>{@link #printPaged(Scanner, Iterable, int)}: Prints items a page at a
+ * time, waiting for the user between pages.</li>
  * </ul>
- * Additionally, the class contains a private method
- * {@link #hashPassword(String)} to hash passwords using SHA-256.
+ * Additionally, the class contains the method {@link #hashPassword(String)}
+ * to hash passwords using SHA-256, also used by the script mode.
  *
  * @see Scanner
  * @see Reason
@@ -261,13 +263,41 @@ public class Utilities {
 		return ret;
 	}
 
+	/**
+	 * Prints the given items separated by lines, a page at a time. After every
+	 * page, the user presses Enter to print the next one, or types "Q" or "q" to
+	 * stop. The items are read as they are printed, so a lazy iterable only
+	 * fetches the ones shown.
+	 *
+	 * @param sc       The Scanner object for reading user input.
+	 * @param items    The items to print.
+	 * @param pageSize The number of items printed per page.
+	 * @return The number of items printed.
+	 */
+	public static int printPaged(Scanner sc, Iterable<?> items, int pageSize) {
+		int printed = 0;
+		for (Object item : items) {
+			if (printed > 0 && printed % pageSize == 0) {
+				System.out.print("-- Press Enter to show more, or type Q to stop: ");
+				String opt = sc.nextLine().trim();
+				if (opt.startsWith("Q") || opt.startsWith("q")) {
+					break;
+				}
+			}
+			System.out.println(item);
+			System.out.println("-------------------------");
+			printed++;
+		}
+		return printed;
+	}
+
 	/**
 	 * Hashes the provided password using the SHA-256 algorithm.
 	 *
 	 * @param password The password to hash.
 	 * @return The hashed password in a String format.
 	 */
-	private static String hashPassword(String password) {
+	public static String hashPassword(String password) {
 		try {
 			MessageDigest md = MessageDigest.getInstance("SHA-256");
 			byte[] hashedBytes = md.digest(password.getBytes());
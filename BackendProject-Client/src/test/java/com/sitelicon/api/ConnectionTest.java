@@ -0,0 +1,215 @@
+package com.sitelicon.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sitelicon.exceptions.PreconditionFailedException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the limit of asynchronous requests in flight of {@link Connection}
+ * and that every request gives its permit back, whether it is answered,
+ * cancelled or rejected, against a stub server on a local port.
+ * <p>
+ * The requests to {@code /slow} are held by the server until the test lets
+ * them go, and the ones to any other path are answered at once. The ones with
+ * an {@code If-Match} header other than {@value #CURRENT_ETAG} are rejected as
+ * a 412 (Precondition Failed).
+ */
+class ConnectionTest {
+
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private static final String CURRENT_ETAG = "\"1-2\"";
+
+	private HttpServer server;
+	private String url;
+
+	/**
+	 * Requests received by the server, by path.
+	 */
+	private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+
+	/**
+	 * A permit per request to {@code /slow} received.
+	 */
+	private final Semaphore arrived = new Semaphore(0);
+
+	/**
+	 * Lets the requests to {@code /slow} be answered.
+	 */
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger maxActive = new AtomicInteger();
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", this::handle);
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@AfterEach
+	void stopServer() {
+		release.countDown();
+		server.stop(0);
+	}
+
+	@Test
+	void limitsTheRequestsInFlight() throws Exception {
+		try (Connection connection = newConnection(2)) {
+			List<CompletableFuture<String>> responses = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				responses.add(connection.doGetAsync(url + "/slow"));
+			}
+
+			assertTrue(arrived.tryAcquire(2, TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertFalse(arrived.tryAcquire(300, TimeUnit.MILLISECONDS));
+			release.countDown();
+			for (CompletableFuture<String> response : responses) {
+				assertEquals("slow", response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			}
+			assertEquals(2, maxActive.get());
+			assertEquals(5, received.get("/slow").get());
+		}
+	}
+
+	@Test
+	void cancellingAWaitingRequestKeepsItFromBeingSent() throws Exception {
+		try (Connection connection = newConnection(1)) {
+			CompletableFuture<String> slow = connection.doGetAsync(url + "/slow");
+			assertTrue(arrived.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			CompletableFuture<String> cancelled = connection.doGetAsync(url + "/cancelled");
+			cancelled.cancel(true);
+
+			release.countDown();
+			assertEquals("slow", slow.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertEquals("fast", connection.doGetAsync(url + "/fast").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertFalse(received.containsKey("/cancelled"));
+		}
+	}
+
+	@Test
+	void manyCancelledWaitingRequestsAreSkippedWithoutNesting() throws Exception {
+		try (Connection connection = newConnection(1)) {
+			CompletableFuture<String> slow = connection.doGetAsync(url + "/slow");
+			assertTrue(arrived.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			// Enough to overflow the stack if every one returned its permit to the next
+			for (int i = 0; i < 100_000; i++) {
+				connection.doGetAsync(url + "/cancelled").cancel(true);
+			}
+
+			release.countDown();
+			assertEquals("slow", slow.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertEquals("fast", connection.doGetAsync(url + "/fast").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertFalse(received.containsKey("/cancelled"));
+		}
+	}
+
+	@Test
+	void cancellingASentRequestGivesItsPermitBack() throws Exception {
+		try (Connection connection = newConnection(1)) {
+			CompletableFuture<String> slow = connection.doGetAsync(url + "/slow");
+			assertTrue(arrived.tryAcquire(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			slow.cancel(true);
+
+			assertEquals("fast", connection.doGetAsync(url + "/fast").get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void aRejectedRequestGivesItsPermitBack() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		executor.shutdown();
+		try (Connection connection = new Connection(HttpClient.Version.HTTP_1_1, Duration.ofSeconds(TIMEOUT_SECONDS),
+				Duration.ofSeconds(TIMEOUT_SECONDS), executor, 1)) {
+			for (int i = 0; i < 2; i++) {
+				CompletableFuture<String> response = connection.doGetAsync(url + "/fast");
+				ExecutionException e = assertThrows(ExecutionException.class,
+						() -> response.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+				assertInstanceOf(RejectedExecutionException.class, e.getCause());
+			}
+		}
+	}
+
+	@Test
+	void anUpdateIsSentWithItsEntityTag() throws Exception {
+		try (Connection connection = newConnection(1)) {
+			assertEquals("fast", connection.doUpdateAsync("{}", url + "/fast", CURRENT_ETAG)
+					.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertEquals("fast", connection.doUpdateAsync("{}", url + "/fast", null)
+					.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+			CompletableFuture<String> stale = connection.doUpdateAsync("{}", url + "/fast", "\"1-1\"");
+			ExecutionException e = assertThrows(ExecutionException.class,
+					() -> stale.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertInstanceOf(PreconditionFailedException.class, e.getCause());
+		}
+	}
+
+	private Connection newConnection(int maxInFlight) {
+		return new Connection(HttpClient.Version.HTTP_1_1, Duration.ofSeconds(TIMEOUT_SECONDS),
+				Duration.ofSeconds(30), 2, maxInFlight);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		received.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+		String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+		if (ifMatch != null && !ifMatch.equals(CURRENT_ETAG)) {
+			exchange.sendResponseHeaders(412, -1);
+			exchange.close();
+			return;
+		}
+		String body = "fast";
+		if (path.equals("/slow")) {
+			maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+			arrived.release();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			active.decrementAndGet();
+			body = "slow";
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		} catch (IOException e) {
+			// The client cancelled the request
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package com.sitelicon.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link SingleFlight} shares the result or the exception of a
+ * running call with the identical calls made meanwhile, and runs the call again
+ * once it has finished.
+ */
+class SingleFlightTest {
+
+	private static final long TIMEOUT_SECONDS = 5;
+
+	private final SingleFlight singleFlight = new SingleFlight();
+
+	@Test
+	void sharesTheExceptionOfTheRunningCall() throws Exception {
+		IOException failure = new IOException("Failed");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch finish = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Object> first = executor.submit(() -> singleFlight.execute("key", () -> {
+				started.countDown();
+				finish.await();
+				throw failure;
+			}));
+			assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			Future<Object> second = executor.submit(() -> singleFlight.execute("key", () -> "Not run"));
+			while (singleFlight.getSaved() == 0) {
+				Thread.sleep(10);
+			}
+			finish.countDown();
+
+			assertSame(failure, assertThrows(ExecutionException.class,
+					() -> first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).getCause());
+			assertSame(failure, assertThrows(ExecutionException.class,
+					() -> second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).getCause());
+			assertEquals(1, singleFlight.getExecuted());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void runsTheCallAgainOnceItHasFinished() throws Exception {
+		assertEquals("First", singleFlight.execute("key", () -> "First"));
+		assertEquals("Second", singleFlight.execute("key", () -> "Second"));
+
+		assertThrows(IOException.class, () -> singleFlight.execute("failing", () -> {
+			throw new IOException("Failed");
+		}));
+		assertEquals("Recovered", singleFlight.execute("failing", () -> "Recovered"));
+
+		assertEquals(4, singleFlight.getExecuted());
+		assertEquals(0, singleFlight.getSaved());
+	}
+}
@@ -0,0 +1,43 @@
+package com.sitelicon.api;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sitelicon.dto.CacheStats;
+
+/**
+ * Controller class for handling HTTP requests related to the entity caches.
+ *
+ * @see {@link CacheStats}
+ */
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	/**
+	 * Retrieves the hit, miss and eviction statistics of every entity cache.
+	 *
+	 * @return ResponseEntity with a list of the statistics of each cache.
+	 */
+	@GetMapping
+	public ResponseEntity<List<CacheStats>> getCacheStats() {
+		List<CacheStats> stats = cacheManager.getCacheNames().stream().map(name -> {
+			Cache<Object, Object> cache = ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+			com.github.benmanes.caffeine.cache.stats.CacheStats cacheStats = cache.stats();
+			return new CacheStats(name, cache.estimatedSize(), cacheStats.hitCount(), cacheStats.missCount(),
+					cacheStats.hitRate(), cacheStats.evictionCount());
+		}).toList();
+		return ResponseEntity.ok(stats);
+	}
+}
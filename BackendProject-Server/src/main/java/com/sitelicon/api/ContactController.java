@@ -1,21 +1,50 @@
 package com.sitelicon.api;
 
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sitelicon.dto.ContactSearchHit;
+import com.sitelicon.dto.ContactStats;
+import com.sitelicon.dto.ContactSummary;
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.dto.IngestionStats;
+import com.sitelicon.dto.ListView;
 import com.sitelicon.exceptions.ContactNotFound;
+import com.sitelicon.exceptions.InvalidSearchCursor;
+import com.sitelicon.exceptions.InvalidStatsRange;
+import com.sitelicon.exceptions.VersionMismatch;
 import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.model.StatsBucket;
+import com.sitelicon.service.ContactIngestionQueue;
+import com.sitelicon.service.ContactSearchService;
+import com.sitelicon.service.ContactStatsService;
 import com.sitelicon.service.ContactService;
 
 /**
@@ -31,79 +60,362 @@ public class ContactController {
 	@Autowired
 	private ContactService contactService;
 
+	@Autowired
+	private ContactSearchService contactSearchService;
+
+	@Autowired
+	private ContactStatsService contactStatsService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EncodedResponseCache encodedResponseCache;
+
+	/**
+	 * Write-behind queue, only present when the asynchronous ingestion mode is
+	 * enabled.
+	 */
+	@Autowired(required = false)
+	private ContactIngestionQueue ingestionQueue;
+
 	/**
-	 * Retrieves a list of all contacts.
+	 * Retrieves a page of contacts using keyset pagination. The cursor of the next
+	 * page is returned in the {@value CursorPage#NEXT_CURSOR_HEADER} header, which
+	 * is omitted on the last page. The page carries an entity tag built from the
+	 * IDs and versions of its contacts, so a request with a matching
+	 * {@code If-None-Match} header gets a 304 Not Modified response.
+	 *
+	 * <p>
+	 * The contacts can be filtered by reason, email and creation time. Only the
+	 * contacts that match all the filters given are returned. They are listed in
+	 * the {@code summary} view, without their message, or in the {@code full} one.
 	 *
-	 * @return ResponseEntity with a list of contacts if successful, or an empty
-	 *         list if no contacts are found.
+	 * @param reason The reason of the contacts.
+	 * @param email  The email of the contacts.
+	 * @param from   The time from which the contacts were created (inclusive), in
+	 *               ISO-8601 format.
+	 * @param to     The time until which the contacts were created (exclusive), in
+	 *               ISO-8601 format.
+	 * @param after  The ID after which the page starts. If omitted, the first page
+	 *               is returned.
+	 * @param limit  The requested size of the page. It is capped server-side.
+	 * @param view   The view of the contacts: {@code summary} or {@code full}. If
+	 *               omitted, the full one.
+	 * @return ResponseEntity with a list of contacts if successful, an empty list
+	 *         if no contacts are found, or a 400 Bad Request response if the view
+	 *         is unknown.
 	 */
 	@GetMapping
-	public ResponseEntity<List<Contact>> getAllContacts() {
-		return ResponseEntity.ok(contactService.getAllContacts());
+	public ResponseEntity<List<? extends ContactSummary>> getAllContacts(
+			@RequestParam(required = false) Reason reason,
+			@RequestParam(required = false) String email,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+			@RequestParam(required = false) Long after, @RequestParam(required = false) Integer limit,
+			@RequestParam(defaultValue = "full") String view) {
+		ListView listView;
+		try {
+			listView = ListView.valueOf(view.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		CursorPage<? extends ContactSummary> page = reason == null && email == null && from == null && to == null
+				? contactService.getContactsPage(after, limit, listView)
+				: contactService.findContacts(reason, email, from == null ? null : Timestamp.from(from),
+						to == null ? null : Timestamp.from(to), after, limit, listView);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(ETags.of(page, listView));
+		if (page.hasNext()) {
+			response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(page.getItems());
+	}
+
+	/**
+	 * Exports all the contacts, writing every contact to the response as it is read
+	 * from the database. The contacts are written as newline delimited JSON if the
+	 * client accepts {@value MediaType#APPLICATION_NDJSON_VALUE}, or as a JSON
+	 * array otherwise.
+	 *
+	 * @param accept   The Accept header of the request.
+	 * @param response The response the contacts are written to.
+	 * @throws IOException If an error occurs while writing the response.
+	 */
+	@GetMapping(value = "/export", produces = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_NDJSON_VALUE })
+	public void exportContacts(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			HttpServletResponse response) throws IOException {
+		boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+		response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+
+		try (StreamingJsonWriter<Contact> writer = ndjson
+				? StreamingJsonWriter.ndjson(objectMapper, Contact.class, response.getOutputStream())
+				: StreamingJsonWriter.array(objectMapper, Contact.class, response.getOutputStream())) {
+			contactService.exportContacts(writer);
+		}
+	}
+
+	/**
+	 * Searches the contacts whose name or message contain all the words of the
+	 * query, from the best match to the worst one. Every contact found carries its
+	 * name with the matched words highlighted and a snippet of its message. The
+	 * cursor of the next page is returned in the
+	 * {@value CursorPage#NEXT_CURSOR_HEADER} header, which is omitted on the last
+	 * page.
+	 *
+	 * @param q     The words to search.
+	 * @param after The cursor returned with the previous page. If omitted, the
+	 *              first page is returned.
+	 * @param limit The requested size of the page. It is capped server-side.
+	 * @return ResponseEntity with a list of the contacts found, or a 400 Bad
+	 *         Request response if the query is empty or the cursor is invalid.
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<List<ContactSearchHit>> searchContacts(@RequestParam String q,
+			@RequestParam(required = false) String after, @RequestParam(required = false) Integer limit) {
+		if (q.isBlank()) {
+			return ResponseEntity.badRequest().build();
+		}
+		CursorPage<ContactSearchHit> page;
+		try {
+			page = contactSearchService.search(q, after, limit);
+		} catch (InvalidSearchCursor e) {
+			return ResponseEntity.badRequest().build();
+		}
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.hasNext()) {
+			response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(page.getItems());
+	}
+
+	/**
+	 * Retrieves the number of contacts created in every bucket of a time range, by
+	 * reason. The statistics are kept up to date as contacts are created and
+	 * deleted, so they are served without reading the contacts.
+	 *
+	 * @param bucket The size of the buckets: {@code minute}, {@code hour} or
+	 *               {@code day}.
+	 * @param from   The time from which the contacts are counted (inclusive), in
+	 *               ISO-8601 format. If omitted, one day before {@code to}.
+	 * @param to     The time until which the contacts are counted (exclusive), in
+	 *               ISO-8601 format. If omitted, the current time.
+	 * @return ResponseEntity with a list of the buckets with contacts, or a 400 Bad
+	 *         Request response if the bucket is unknown or the range is empty or
+	 *         too long.
+	 */
+	@GetMapping("/stats")
+	public ResponseEntity<List<ContactStats>> getContactStats(@RequestParam(defaultValue = "hour") String bucket,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+		StatsBucket statsBucket;
+		try {
+			statsBucket = StatsBucket.valueOf(bucket.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		Instant end = to == null ? Instant.now() : to;
+		Instant start = from == null ? end.minus(Duration.ofDays(1)) : from;
+		try {
+			return ResponseEntity.ok(contactStatsService.getStats(statsBucket, start, end));
+		} catch (InvalidStatsRange e) {
+			return ResponseEntity.badRequest().build();
+		}
 	}
 
 	/**
-	 * Retrieves a contact by its unique identifier.
+	 * Retrieves a contact by its unique identifier. The response carries an
+	 * entity tag built from the ID and version of the contact, so a request with a
+	 * matching {@code If-None-Match} header gets a 304 Not Modified response
+	 * without the contact being serialized. Otherwise the JSON of the contact is
+	 * written from the {@code contact-responses} cache, compressed with gzip if
+	 * the client accepts it.
 	 *
-	 * @param id The unique identifier of the contact.
-	 * @return ResponseEntity with the contact if found, or a 404 Not Found response
-	 *         if the contact does not exist.
+	 * @param id      The unique identifier of the contact.
+	 * @param request The request, to check its conditional and encoding headers.
+	 * @return ResponseEntity with the contact if found, or a 404 Not Found response if
+	 *         the contact does not exist.
 	 */
-	@GetMapping("/{id}")
-	public ResponseEntity<Contact> getContactById(@PathVariable Long id) {
-		Contact contact = null;
+	@GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<byte[]> getContactById(@PathVariable Long id, ServletWebRequest request) {
 		try {
-			contact = contactService.getContactById(id);
-			return ResponseEntity.ok(contact);
+			Contact contact = contactService.getContactById(id);
+			return encodedResponseCache.respond("contact-responses", contact, request);
 		} catch (ContactNotFound e) {
 			return ResponseEntity.notFound().build();
 		}
 	}
 
 	/**
-	 * Creates a new contact.
+	 * Creates a new contact. If the asynchronous ingestion mode is enabled, the
+	 * contact is checked and put in the write-behind queue instead of being stored
+	 * right away.
 	 *
 	 * @param contact The contact object to be created.
-	 * @return ResponseEntity with a 201 Created status if successful.
+	 * @return ResponseEntity with a 201 Created status if successful. In the
+	 *         asynchronous mode, a 202 Accepted status if the contact was queued, a
+	 *         400 Bad Request response if some field is missing, or a 503 Service
+	 *         Unavailable response if the queue is full.
 	 */
 	@PostMapping
 	public ResponseEntity<Void> createContact(@RequestBody Contact contact) {
+		if (ingestionQueue != null) {
+			if (!isComplete(contact)) {
+				return ResponseEntity.badRequest().build();
+			}
+			if (!ingestionQueue.submit(contact)) {
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1")
+						.build();
+			}
+			return ResponseEntity.accepted().build();
+		}
 		contactService.createContact(contact);
 		return ResponseEntity.status(HttpStatus.CREATED).build();
 	}
 
 	/**
-	 * Updates an existing contact.
+	 * Retrieves the statistics of the asynchronous ingestion queue.
+	 *
+	 * @return ResponseEntity with the statistics, or a 404 Not Found response if
+	 *         the asynchronous ingestion mode is disabled.
+	 */
+	@GetMapping("/ingestion")
+	public ResponseEntity<IngestionStats> getIngestionStats() {
+		if (ingestionQueue == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(ingestionQueue.getStats());
+	}
+
+	/**
+	 * Creates several contacts at once.
+	 *
+	 * @param contacts The contact objects to be created.
+	 * @return ResponseEntity with a 201 Created status and the list of IDs
+	 *         generated, in the same order as the contacts received.
+	 */
+	@PostMapping("/bulk")
+	public ResponseEntity<List<Long>> createContacts(@RequestBody List<Contact> contacts) {
+		return ResponseEntity.status(HttpStatus.CREATED).body(contactService.createContacts(contacts));
+	}
+
+	/**
+	 * Updates an existing contact. If the request has an {@code If-Match} header,
+	 * the contact is only updated when its entity tag matches.
 	 *
 	 * @param id             The unique identifier of the contact to be updated.
+	 * @param ifMatch        The entity tags the contact must match, if any.
 	 * @param updatedContact The updated contact object.
-	 * @return ResponseEntity with a 200 OK status if successful, or a 404 Not Found
-	 *         response if the contact does not exist.
+	 * @return ResponseEntity with a 200 OK status and the new entity tag if
+	 *         successful, a 404 Not Found response if the contact does not exist,
+	 *         or a 412 Precondition Failed response if the entity tag doesn't
+	 *         match.
 	 */
 	@PutMapping("/{id}")
-	public ResponseEntity<Void> updateContact(@PathVariable Long id, @RequestBody Contact updatedContact) {
+	public ResponseEntity<Void> updateContact(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestBody Contact updatedContact) {
 		try {
-			contactService.updateContact(id, updatedContact);
-			return ResponseEntity.ok().build();
+			Contact contact = contactService.updateContact(id, updatedContact, ETags.expectedVersion(ifMatch, id));
+			return ResponseEntity.ok().eTag(ETags.of(contact)).build();
 		} catch (ContactNotFound e) {
 			return ResponseEntity.notFound().build();
+		} catch (VersionMismatch e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
 		}
 	}
 
 	/**
-	 * Deletes a contact by its unique identifier.
+	 * Partially updates an existing contact. Only the fields present in the request
+	 * body are changed. If the request has an {@code If-Match} header, the contact
+	 * is only updated when its entity tag matches.
 	 *
-	 * @param id The unique identifier of the contact to be deleted.
-	 * @return ResponseEntity with a 200 OK status if successful, or a 404 Not Found
-	 *         response if the contact does not exist.
+	 * @param id      The unique identifier of the contact to be updated.
+	 * @param ifMatch The entity tags the contact must match, if any.
+	 * @param changes The contact object with the fields to change.
+	 * @return ResponseEntity with a 200 OK status if successful, with the new
+	 *         entity tag if an {@code If-Match} header was sent, a 404 Not Found
+	 *         response if the contact does not exist, or a 412 Precondition Failed
+	 *         response if the entity tag doesn't match.
+	 */
+	@PatchMapping("/{id}")
+	public ResponseEntity<Void> patchContact(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestBody Contact changes) {
+		Long expectedVersion = ETags.expectedVersion(ifMatch, id);
+		try {
+			contactService.patchContact(id, changes, expectedVersion);
+		} catch (ContactNotFound e) {
+			return ResponseEntity.notFound().build();
+		} catch (VersionMismatch e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+		}
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (expectedVersion != null) {
+			response.eTag(ETags.of(id, expectedVersion + 1));
+		}
+		return response.build();
+	}
+
+	/**
+	 * Deletes a contact by its unique identifier. If the request has an
+	 * {@code If-Match} header, the contact is only deleted when its entity tag
+	 * matches.
+	 *
+	 * @param id      The unique identifier of the contact to be deleted.
+	 * @param ifMatch The entity tags the contact must match, if any.
+	 * @return ResponseEntity with a 200 OK status if successful, a 404 Not Found
+	 *         response if the contact does not exist, or a 412 Precondition Failed
+	 *         response if the entity tag doesn't match.
 	 */
 	@DeleteMapping("/{id}")
-	public ResponseEntity<Void> deleteContact(@PathVariable Long id) {
+	public ResponseEntity<Void> deleteContact(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		try {
-			contactService.deleteContact(id);
+			contactService.deleteContact(id, ETags.expectedVersion(ifMatch, id));
 			return ResponseEntity.ok().build();
 		} catch (ContactNotFound e) {
 			return ResponseEntity.notFound().build();
+		} catch (VersionMismatch e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
 		}
 	}
+
+	/**
+	 * Deletes several contacts at once, either by a list of IDs or all the ones
+	 * created before a given time. The contacts are deleted in chunks with
+	 * set-based statements.
+	 *
+	 * @param ids    The unique identifiers of the contacts to be deleted.
+	 * @param before The time before which the contacts are deleted, in ISO-8601
+	 *               format.
+	 * @return ResponseEntity with a 200 OK status and the number of contacts
+	 *         deleted if successful, or a 400 Bad Request response if neither or
+	 *         both of the parameters are given.
+	 */
+	@DeleteMapping
+	public ResponseEntity<Long> deleteContacts(@RequestParam(required = false) List<Long> ids,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant before) {
+		if ((ids == null) == (before == null)) {
+			return ResponseEntity.badRequest().build();
+		}
+		if (ids != null) {
+			return ResponseEntity.ok(contactService.deleteContacts(ids));
+		}
+		return ResponseEntity.ok(contactService.deleteContactsCreatedBefore(Timestamp.from(before)));
+	}
+
+	/**
+	 * Checks that a contact has all the fields needed to be stored, as the
+	 * asynchronous mode can't report errors once the contact has been accepted.
+	 *
+	 * @param contact The contact to check.
+	 * @return {@code true} if the name, email, reason and message are present.
+	 */
+	private boolean isComplete(Contact contact) {
+		return contact.getName() != null && !contact.getName().isBlank() && contact.getEmail() != null
+				&& !contact.getEmail().isBlank() && contact.getReason() != null && contact.getMessage() != null
+				&& !contact.getMessage().isBlank();
+	}
 }
@@ -0,0 +1,91 @@
+package com.sitelicon.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.util.DigestUtils;
+
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.dto.ListView;
+import com.sitelicon.model.Versioned;
+
+/**
+ * Builds and parses the strong entity tags used by the controllers.
+ * <p>
+ * The tag of an entity is made of its ID and its row version, so it can be
+ * computed without serializing the entity. The tag of a page is an MD5 hash of
+ * its view, the IDs and versions of its items and its next cursor, so it
+ * changes when any of the items is created, updated or deleted.
+ */
+final class ETags {
+
+	private ETags() {
+	}
+
+	/**
+	 * Builds the entity tag of an entity.
+	 *
+	 * @param entity The entity.
+	 * @return The quoted entity tag, in the form {@code "<id>-<version>"}.
+	 */
+	static String of(Versioned entity) {
+		return of(entity.getId(), entity.getVersion());
+	}
+
+	/**
+	 * Builds the entity tag of an entity from its ID and version.
+	 *
+	 * @param id      The ID of the entity.
+	 * @param version The version of the entity.
+	 * @return The quoted entity tag, in the form {@code "<id>-<version>"}.
+	 */
+	static String of(Long id, Long version) {
+		return "\"" + id + "-" + version + "\"";
+	}
+
+	/**
+	 * Builds the entity tag of a page of entities. The view the page is listed in
+	 * is part of the tag, as every view is a different representation of it.
+	 *
+	 * @param page The page.
+	 * @param view The view of the page.
+	 * @return The quoted entity tag.
+	 */
+	static String of(CursorPage<? extends Versioned> page, ListView view) {
+		StringBuilder state = new StringBuilder(view.name()).append(':');
+		List<? extends Versioned> items = page.getItems();
+		for (Versioned item : items) {
+			state.append(item.getId()).append('-').append(item.getVersion()).append(',');
+		}
+		state.append(page.getNextCursor());
+		return "\"" + DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+
+	/**
+	 * Obtains the version an {@code If-Match} header expects for an entity.
+	 *
+	 * @param ifMatch The value of the {@code If-Match} header, may be {@code null}.
+	 * @param id      The ID of the entity the request is for.
+	 * @return {@code null} if the header is absent or {@code *}, so any version is
+	 *         accepted. The version of the first tag of the header that belongs to
+	 *         the entity otherwise, or {@code -1} if none does, which doesn't match
+	 *         any version.
+	 */
+	static Long expectedVersion(String ifMatch, Long id) {
+		if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		String prefix = id + "-";
+		for (String tag : ifMatch.split(",")) {
+			String value = tag.trim().replace("\"", "");
+			if (value.startsWith(prefix)) {
+				try {
+					return Long.valueOf(value.substring(prefix.length()));
+				} catch (NumberFormatException e) {
+					return -1L;
+				}
+			}
+		}
+		return -1L;
+	}
+}
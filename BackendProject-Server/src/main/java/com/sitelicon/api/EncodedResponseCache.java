@@ -0,0 +1,119 @@
+package com.sitelicon.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sitelicon.model.Versioned;
+
+/**
+ * Cache of the JSON representation of the entities read by ID, already encoded
+ * and also compressed with gzip, so the hot entities aren't serialized on every
+ * request.
+ * <p>
+ * The encoded entities are kept by ID in the {@code user-responses} and
+ * {@code contact-responses} caches together with the version they were encoded
+ * from. They are encoded the first time an entity is read and dropped by the
+ * services when the entity is updated or deleted. An entry of an older version
+ * is never served, as the version of the entity read is checked first.
+ */
+@Component
+class EncodedResponseCache {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	/**
+	 * Builds the response of an entity from its encoded representation, encoding
+	 * and caching it if it isn't cached yet for its current version. The response
+	 * carries the entity tag of the entity. If the request has a matching
+	 * {@code If-None-Match} header, the response is a 304 Not Modified one and
+	 * the entity isn't encoded.
+	 * <p>
+	 * The {@code Vary: Accept-Encoding} header is set on the response before
+	 * checking the entity tag, so the 304 responses carry it as the 200 ones do
+	 * and a shared cache keeps the plain and the compressed bodies apart when it
+	 * revalidates them.
+	 *
+	 * @param cacheName The name of the cache of the entity type.
+	 * @param entity    The entity.
+	 * @param request   The request the response is for.
+	 * @return ResponseEntity with the JSON of the entity, compressed with gzip if
+	 *         the client accepts it, or {@code null} if the response has been
+	 *         completed as a 304 Not Modified one.
+	 */
+	ResponseEntity<byte[]> respond(String cacheName, Versioned entity, ServletWebRequest request) {
+		request.getResponse().setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		String eTag = ETags.of(entity);
+		if (request.checkNotModified(eTag)) {
+			return null;
+		}
+		EncodedEntity encoded = get(cacheName, entity);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag).contentType(MediaType.APPLICATION_JSON);
+		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip);
+		}
+		return response.body(encoded.json);
+	}
+
+	/**
+	 * Gets the encoded representation of an entity, encoding and caching it if it
+	 * isn't cached for its current version.
+	 */
+	private EncodedEntity get(String cacheName, Versioned entity) {
+		Cache cache = cacheManager.getCache(cacheName);
+		EncodedEntity encoded = cache.get(entity.getId(), EncodedEntity.class);
+		if (encoded == null || !encoded.version.equals(entity.getVersion())) {
+			encoded = encode(entity);
+			cache.put(entity.getId(), encoded);
+		}
+		return encoded;
+	}
+
+	private EncodedEntity encode(Versioned entity) {
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(entity);
+			ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 2 + 32);
+			try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+				out.write(json);
+			}
+			return new EncodedEntity(entity.getVersion(), json, gzip.toByteArray());
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Couldn't encode the entity " + entity.getId(), e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * JSON representation of an entity, plain and compressed, with the version it
+	 * was encoded from.
+	 */
+	private static final class EncodedEntity {
+		private final Long version;
+		private final byte[] json;
+		private final byte[] gzip;
+
+		EncodedEntity(Long version, byte[] json, byte[] gzip) {
+			this.version = version;
+			this.json = json;
+			this.gzip = gzip;
+		}
+	}
+}
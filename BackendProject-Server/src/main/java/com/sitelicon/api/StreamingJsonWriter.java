@@ -0,0 +1,87 @@
+package com.sitelicon.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes a sequence of values to an output stream as they are produced, either
+ * as a JSON array or as newline delimited JSON (NDJSON). Used by the export
+ * endpoints so the rows read from the database go straight to the response
+ * without being collected in a list first.
+ * <p>
+ * It is a {@link Consumer}, so it can be handed to the service methods that
+ * iterate the rows. Any {@link IOException} while writing is rethrown as an
+ * {@link UncheckedIOException}.
+ *
+ * @param <T> The type of the values written.
+ */
+class StreamingJsonWriter<T> implements Consumer<T>, Closeable {
+
+	private final SequenceWriter writer;
+
+	private StreamingJsonWriter(SequenceWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Creates a writer that outputs the values as the elements of a JSON array.
+	 *
+	 * @param <T>          The type of the values written.
+	 * @param objectMapper The mapper used to serialize the values.
+	 * @param type         The class of the values written.
+	 * @param out          The stream the values are written to.
+	 * @return The writer.
+	 * @throws IOException If the array can't be opened.
+	 */
+	static <T> StreamingJsonWriter<T> array(ObjectMapper objectMapper, Class<T> type, OutputStream out)
+			throws IOException {
+		return new StreamingJsonWriter<>(objectMapper.writerFor(type)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).writeValuesAsArray(out));
+	}
+
+	/**
+	 * Creates a writer that outputs every value as a JSON document in its own line.
+	 *
+	 * @param <T>          The type of the values written.
+	 * @param objectMapper The mapper used to serialize the values.
+	 * @param type         The class of the values written.
+	 * @param out          The stream the values are written to.
+	 * @return The writer.
+	 * @throws IOException If the writer can't be opened.
+	 */
+	static <T> StreamingJsonWriter<T> ndjson(ObjectMapper objectMapper, Class<T> type, OutputStream out)
+			throws IOException {
+		return new StreamingJsonWriter<>(objectMapper.writerFor(type)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("\n")
+				.writeValues(out));
+	}
+
+	/**
+	 * Writes a value to the stream.
+	 *
+	 * @param value The value to write.
+	 */
+	@Override
+	public void accept(T value) {
+		try {
+			writer.write(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the JSON array if needed and flushes the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
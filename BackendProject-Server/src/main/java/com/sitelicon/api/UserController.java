@@ -1,20 +1,36 @@
 package com.sitelicon.api;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.dto.ListView;
+import com.sitelicon.dto.UserDetails;
+import com.sitelicon.dto.UserSummary;
 import com.sitelicon.exceptions.UserNotFound;
+import com.sitelicon.exceptions.VersionMismatch;
 import com.sitelicon.model.User;
 import com.sitelicon.service.UserService;
 
@@ -31,30 +47,91 @@ public class UserController {
 	@Autowired
 	private UserService userService;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EncodedResponseCache encodedResponseCache;
+
 	/**
-	 * Retrieves a list of all users.
+	 * Retrieves a page of users using keyset pagination. The cursor of the next
+	 * page is returned in the {@value CursorPage#NEXT_CURSOR_HEADER} header, which
+	 * is omitted on the last page. The page carries an entity tag built from the
+	 * IDs and versions of its users, so a request with a matching
+	 * {@code If-None-Match} header gets a 304 Not Modified response.
+	 * <p>
+	 * The users are listed in the {@code summary} view, with their name, last name
+	 * and email, or in the {@code full} view, with all their fields except the
+	 * password.
 	 *
-	 * @return ResponseEntity with a list of users if successful, or an empty list
-	 *         if no users are found.
+	 * @param after The ID after which the page starts. If omitted, the first page
+	 *              is returned.
+	 * @param limit The requested size of the page. It is capped server-side.
+	 * @param view  The view of the users: {@code summary} or {@code full}. If
+	 *              omitted, the full one.
+	 * @return ResponseEntity with a list of users if successful, an empty list if
+	 *         no users are found, or a 400 Bad Request response if the view is
+	 *         unknown.
 	 */
 	@GetMapping
-	public ResponseEntity<List<User>> getAllUsers() {
-		return ResponseEntity.ok(userService.getAllUsers());
+	public ResponseEntity<List<? extends UserSummary>> getAllUsers(@RequestParam(required = false) Long after,
+			@RequestParam(required = false) Integer limit, @RequestParam(defaultValue = "full") String view) {
+		ListView listView;
+		try {
+			listView = ListView.valueOf(view.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().build();
+		}
+		CursorPage<? extends UserSummary> page = userService.getUsersPage(after, limit, listView);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(ETags.of(page, listView));
+		if (page.hasNext()) {
+			response.header(CursorPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(page.getItems());
 	}
 
 	/**
-	 * Retrieves a user by their unique identifier.
+	 * Exports all the users, without their passwords, writing every user to the
+	 * response as it is read from the database. The users are written as newline delimited JSON if the
+	 * client accepts {@value MediaType#APPLICATION_NDJSON_VALUE}, or as a JSON
+	 * array otherwise.
 	 *
-	 * @param id The unique identifier of the user.
+	 * @param accept   The Accept header of the request.
+	 * @param response The response the users are written to.
+	 * @throws IOException If an error occurs while writing the response.
+	 */
+	@GetMapping(value = "/export", produces = { MediaType.APPLICATION_JSON_VALUE,
+			MediaType.APPLICATION_NDJSON_VALUE })
+	public void exportUsers(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+			HttpServletResponse response) throws IOException {
+		boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+		response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+
+		try (StreamingJsonWriter<UserDetails> writer = ndjson
+				? StreamingJsonWriter.ndjson(objectMapper, UserDetails.class, response.getOutputStream())
+				: StreamingJsonWriter.array(objectMapper, UserDetails.class, response.getOutputStream())) {
+			userService.exportUsers(writer);
+		}
+	}
+
+	/**
+	 * Retrieves a user by their unique identifier. The response carries an
+	 * entity tag built from the ID and version of the user, so a request with a
+	 * matching {@code If-None-Match} header gets a 304 Not Modified response
+	 * without the user being serialized. Otherwise the JSON of the user is
+	 * written from the {@code user-responses} cache, compressed with gzip if the
+	 * client accepts it.
+	 *
+	 * @param id      The unique identifier of the user.
+	 * @param request The request, to check its conditional and encoding headers.
 	 * @return ResponseEntity with the user if found, or a 404 Not Found response if
 	 *         the user does not exist.
 	 */
-	@GetMapping("/{id}")
-	public ResponseEntity<User> getUserById(@PathVariable Long id) {
-		User user = null;
+	@GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<byte[]> getUserById(@PathVariable Long id, ServletWebRequest request) {
 		try {
-			user = userService.getUserById(id);
-			return ResponseEntity.ok(user);
+			User user = userService.getUserById(id);
+			return encodedResponseCache.respond("user-responses", user, request);
 		} catch (UserNotFound e) {
 			return ResponseEntity.notFound().build();
 		}
@@ -73,37 +150,97 @@ public class UserController {
 	}
 
 	/**
-	 * Updates an existing user.
+	 * Creates several users at once.
+	 *
+	 * @param users The user objects to be created.
+	 * @return ResponseEntity with a 201 Created status and the list of IDs
+	 *         generated, in the same order as the users received.
+	 */
+	@PostMapping("/bulk")
+	public ResponseEntity<List<Long>> createUsers(@RequestBody List<User> users) {
+		return ResponseEntity.status(HttpStatus.CREATED).body(userService.createUsers(users));
+	}
+
+	/**
+	 * Updates an existing user. If the request has an {@code If-Match} header,
+	 * the user is only updated when its entity tag matches.
 	 *
 	 * @param id          The unique identifier of the user to be updated.
+	 * @param ifMatch     The entity tags the user must match, if any.
 	 * @param updatedUser The updated user object.
-	 * @return ResponseEntity with a 200 OK status if successful, or a 404 Not Found
-	 *         response if the user does not exist.
+	 * @return ResponseEntity with a 200 OK status and the new entity tag if
+	 *         successful, a 404 Not Found response if the user does not exist,
+	 *         or a 412 Precondition Failed response if the entity tag doesn't
+	 *         match.
 	 */
 	@PutMapping("/{id}")
-	public ResponseEntity<Void> updateUser(@PathVariable Long id, @RequestBody User updatedUser) {
+	public ResponseEntity<Void> updateUser(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestBody User updatedUser) {
 		try {
-			userService.updateUser(id, updatedUser);
-			return ResponseEntity.ok().build();
+			User user = userService.updateUser(id, updatedUser, ETags.expectedVersion(ifMatch, id));
+			return ResponseEntity.ok().eTag(ETags.of(user)).build();
+		} catch (UserNotFound e) {
+			return ResponseEntity.notFound().build();
+		} catch (VersionMismatch e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+		}
+	}
+
+	/**
+	 * Partially updates an existing user. Only the fields present in the request
+	 * body are changed. If the request has an {@code If-Match} header, the user
+	 * is only updated when its entity tag matches.
+	 *
+	 * @param id      The unique identifier of the user to be updated.
+	 * @param ifMatch The entity tags the user must match, if any.
+	 * @param changes The user object with the fields to change.
+	 * @return ResponseEntity with a 200 OK status if successful, with the new
+	 *         entity tag if an {@code If-Match} header was sent, a 404 Not Found
+	 *         response if the user does not exist, or a 412 Precondition Failed
+	 *         response if the entity tag doesn't match.
+	 */
+	@PatchMapping("/{id}")
+	public ResponseEntity<Void> patchUser(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+			@RequestBody User changes) {
+		Long expectedVersion = ETags.expectedVersion(ifMatch, id);
+		try {
+			userService.patchUser(id, changes, expectedVersion);
 		} catch (UserNotFound e) {
 			return ResponseEntity.notFound().build();
+		} catch (VersionMismatch e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+		}
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (expectedVersion != null) {
+			response.eTag(ETags.of(id, expectedVersion + 1));
 		}
+		return response.build();
 	}
 
 	/**
-	 * Deletes a user by their unique identifier.
+	 * Deletes a user by their unique identifier. If the request has an
+	 * {@code If-Match} header, the user is only deleted when its entity tag
+	 * matches.
 	 *
-	 * @param id The unique identifier of the user to be deleted.
-	 * @return ResponseEntity with a 200 OK status if successful, or a 404 Not Found
-	 *         response if the user does not exist.
+	 * @param id      The unique identifier of the user to be deleted.
+	 * @param ifMatch The entity tags the user must match, if any.
+	 * @return ResponseEntity with a 200 OK status if successful, a 404 Not Found
+	 *         response if the user does not exist, or a 412 Precondition Failed
+	 *         response if the entity tag doesn't match.
 	 */
 	@DeleteMapping("/{id}")
-	public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
+	public ResponseEntity<Void> deleteUser(@PathVariable Long id,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 		try {
-			userService.deleteUser(id);
+			userService.deleteUser(id, ETags.expectedVersion(ifMatch, id));
 			return ResponseEntity.ok().build();
 		} catch (UserNotFound e) {
 			return ResponseEntity.notFound().build();
+		} catch (VersionMismatch e) {
+			return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
 		}
 	}
 }
@@ -0,0 +1,15 @@
+package com.sitelicon.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Enables the execution of the methods annotated with
+ * {@link org.springframework.scheduling.annotation.Async} in the background,
+ * on the task executor configured through the {@code spring.task.execution.*}
+ * properties.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfiguration {
+}
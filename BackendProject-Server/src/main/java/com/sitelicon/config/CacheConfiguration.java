@@ -0,0 +1,21 @@
+package com.sitelicon.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Enables the caching of the entities read by ID and of their encoded JSON
+ * responses. The caches are Caffeine caches bounded by size and time to live,
+ * configured through the {@code spring.cache.*} properties.
+ * <p>
+ * The caching advice runs outside the transactional one, so the entries are
+ * evicted once the transaction that changed the entity has committed. Evicted
+ * before the commit, a lookup made in between could put the old entity back in
+ * the cache until it expired. It also keeps the lookups served from the cache
+ * from opening a transaction.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfiguration {
+}
@@ -0,0 +1,43 @@
+package com.sitelicon.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Replaces the JPA vendor adapter of Spring Boot with one that begins the
+ * transactions through {@link SqliteJpaDialect}, configured from the
+ * {@code spring.jpa.*} properties as Boot does.
+ */
+@Configuration
+public class JpaConfiguration {
+
+	/**
+	 * Hibernate vendor adapter with the transaction dialect of SQLite.
+	 *
+	 * @param properties The JPA properties of the application.
+	 * @return The vendor adapter.
+	 */
+	@Bean
+	public JpaVendorAdapter jpaVendorAdapter(JpaProperties properties) {
+		SqliteJpaDialect dialect = new SqliteJpaDialect();
+		HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter() {
+			@Override
+			public HibernateJpaDialect getJpaDialect() {
+				return dialect;
+			}
+		};
+		adapter.setShowSql(properties.isShowSql());
+		if (properties.getDatabase() != null) {
+			adapter.setDatabase(properties.getDatabase());
+		}
+		if (properties.getDatabasePlatform() != null) {
+			adapter.setDatabasePlatform(properties.getDatabasePlatform());
+		}
+		adapter.setGenerateDdl(properties.isGenerateDdl());
+		return adapter;
+	}
+}
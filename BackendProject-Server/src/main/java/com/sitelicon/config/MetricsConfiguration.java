@@ -0,0 +1,33 @@
+package com.sitelicon.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateQueryMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.Tags;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Adds the metrics not registered by Spring Boot to the ones exposed through
+ * the {@code /actuator/prometheus} endpoint. Boot already records the requests
+ * of every endpoint, the invocations of every repository method, the usage of
+ * the connection pools, the session statistics of Hibernate and the garbage
+ * collection and allocation of the JVM.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+	/**
+	 * Records the executions of every query run through Hibernate, by query. It
+	 * needs the statistics of Hibernate to be enabled.
+	 *
+	 * @param entityManagerFactory The entity manager factory of the application.
+	 * @return The binder of the query metrics.
+	 */
+	@Bean
+	public HibernateQueryMetrics hibernateQueryMetrics(EntityManagerFactory entityManagerFactory) {
+		return new HibernateQueryMetrics(entityManagerFactory.unwrap(SessionFactory.class), "entityManagerFactory",
+				Tags.empty());
+	}
+}
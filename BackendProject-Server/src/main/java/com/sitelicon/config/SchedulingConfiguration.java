@@ -0,0 +1,14 @@
+package com.sitelicon.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the execution of the methods annotated with
+ * {@link org.springframework.scheduling.annotation.Scheduled}, on the scheduler
+ * configured through the {@code spring.task.scheduling.*} properties.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
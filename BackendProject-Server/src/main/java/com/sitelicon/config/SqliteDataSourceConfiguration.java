@@ -0,0 +1,100 @@
+package com.sitelicon.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Data source configuration of the {@code sqlite-perf} profile.
+ * <p>
+ * SQLite only allows one writer at a time, so instead of letting several pooled
+ * connections fight for the write lock, the profile uses two pools: a writer
+ * pool with exactly one connection and a reader pool with
+ * {@link SqliteProperties#getReaders()} connections. Both apply the pragmas of
+ * {@link SqliteProperties} on every connection. Read-only transactions are
+ * routed to the reader pool, and everything else to the writer.
+ * <p>
+ * The routing is done by a {@link LazyConnectionDataSourceProxy}, which doesn't
+ * take a physical connection until the first statement runs, so the read-only
+ * flag of the transaction is already known at that point.
+ *
+ * @see SqliteProperties
+ */
+@Configuration
+@Profile("sqlite-perf")
+@EnableConfigurationProperties(SqliteProperties.class)
+public class SqliteDataSourceConfiguration {
+
+	/**
+	 * Pool with the only connection allowed to write to the database.
+	 *
+	 * @param properties The data source properties of the application.
+	 * @param sqlite     The settings of the profile.
+	 * @return The writer pool.
+	 */
+	@Bean
+	public HikariDataSource writerDataSource(DataSourceProperties properties, SqliteProperties sqlite) {
+		HikariDataSource dataSource = createDataSource(properties, sqlite, "sqlite-writer");
+		dataSource.setMaximumPoolSize(1);
+		dataSource.setMinimumIdle(1);
+		return dataSource;
+	}
+
+	/**
+	 * Pool with the connections used by read-only transactions.
+	 *
+	 * @param properties The data source properties of the application.
+	 * @param sqlite     The settings of the profile.
+	 * @return The reader pool.
+	 */
+	@Bean
+	public HikariDataSource readerDataSource(DataSourceProperties properties, SqliteProperties sqlite) {
+		HikariDataSource dataSource = createDataSource(properties, sqlite, "sqlite-reader");
+		dataSource.setMaximumPoolSize(sqlite.getReaders());
+		dataSource.setMinimumIdle(sqlite.getReaders());
+		return dataSource;
+	}
+
+	/**
+	 * Data source used by the application, which routes every connection to the
+	 * reader or the writer pool.
+	 *
+	 * @param writerDataSource The writer pool.
+	 * @param readerDataSource The reader pool.
+	 * @return The routing data source.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(HikariDataSource writerDataSource, HikariDataSource readerDataSource) {
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(writerDataSource);
+		dataSource.setReadOnlyDataSource(readerDataSource);
+		return dataSource;
+	}
+
+	/**
+	 * Creates a pool for the database configured in the application, applying the
+	 * pragmas of the profile on every connection.
+	 *
+	 * @param properties The data source properties of the application.
+	 * @param sqlite     The settings of the profile.
+	 * @param poolName   The name of the pool.
+	 * @return The pool, not started until the first connection is requested.
+	 */
+	private HikariDataSource createDataSource(DataSourceProperties properties, SqliteProperties sqlite,
+			String poolName) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setPoolName(poolName);
+		dataSource.setJdbcUrl(properties.determineUrl());
+		dataSource.setDriverClassName(properties.determineDriverClassName());
+		dataSource.setDataSourceProperties(sqlite.toPragmas());
+		return dataSource;
+	}
+}
@@ -0,0 +1,72 @@
+package com.sitelicon.config;
+
+import java.sql.SQLException;
+
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.sqlite.SQLiteConfig.TransactionMode;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteConnectionConfig;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Hibernate dialect of the transactions that opens the ones that write with
+ * {@code BEGIN IMMEDIATE} and the read-only ones with {@code BEGIN DEFERRED}.
+ * <p>
+ * A deferred transaction that reads before writing, such as an insert that
+ * fires the full-text search triggers of the contacts, takes a shared lock
+ * first and upgrades it later. Two of them doing that at the same time
+ * deadlock, and SQLite fails one of them at once instead of waiting through
+ * the busy timeout. Taking the write lock up front avoids it.
+ * <p>
+ * The read-only transactions keep a deferred {@code BEGIN}. They never upgrade
+ * their lock, so they can't take part in that deadlock, and SQLite lets any
+ * number of them read at the same time. Beginning them with
+ * {@code BEGIN IMMEDIATE} would make every lookup and listing take the only
+ * write lock of the database: they would wait for each other and for the
+ * writes, and fail with {@code SQLITE_BUSY} once the busy timeout runs out
+ * under load.
+ * <p>
+ * The mode is set on the connection of the transaction before it begins and put
+ * back to deferred once it finishes, as the connection is pooled. The
+ * connection of a read-only transaction isn't touched, so it is still taken
+ * lazily and can be routed to a reader pool.
+ */
+class SqliteJpaDialect extends HibernateJpaDialect {
+
+	@Override
+	public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+			throws SQLException {
+		if (definition.isReadOnly()) {
+			return super.beginTransaction(entityManager, definition);
+		}
+		SQLiteConnectionConfig config = entityManager.unwrap(Session.class)
+				.doReturningWork(connection -> connection.unwrap(SQLiteConnection.class).getConnectionConfig());
+		config.setTransactionMode(TransactionMode.IMMEDIATE);
+		try {
+			return new WriteTransactionData(super.beginTransaction(entityManager, definition), config);
+		} catch (RuntimeException | SQLException e) {
+			config.setTransactionMode(TransactionMode.DEFERRED);
+			throw e;
+		}
+	}
+
+	@Override
+	public void cleanupTransaction(Object transactionData) {
+		if (transactionData instanceof WriteTransactionData data) {
+			data.config().setTransactionMode(TransactionMode.DEFERRED);
+			super.cleanupTransaction(data.transactionData());
+		} else {
+			super.cleanupTransaction(transactionData);
+		}
+	}
+
+	/**
+	 * Data of a write transaction: the one of Hibernate and the configuration of
+	 * its connection.
+	 */
+	private record WriteTransactionData(Object transactionData, SQLiteConnectionConfig config) {
+	}
+}
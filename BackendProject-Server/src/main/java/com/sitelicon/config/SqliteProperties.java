@@ -0,0 +1,101 @@
+package com.sitelicon.config;
+
+import java.util.Properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings of the SQLite performance profile, bound from the {@code sqlite.*}
+ * properties. The pragmas are applied by the SQLite driver every time a pooled
+ * connection is opened.
+ * <p>
+ * The default values are the ones of the profile: WAL journal so readers don't
+ * block on the writer, {@code NORMAL} synchronous so commits don't fsync the
+ * database file, a 20 MB page cache, 256 MB of memory mapped I/O and temporary
+ * tables kept in memory.
+ *
+ * @see SqliteDataSourceConfiguration
+ */
+@ConfigurationProperties(prefix = "sqlite")
+public class SqliteProperties {
+	private String journalMode = "WAL";
+	private String synchronous = "NORMAL";
+	private int cacheSize = -20000;
+	private long mmapSize = 268435456L;
+	private String tempStore = "MEMORY";
+	private int busyTimeout = 5000;
+	private int readers = 4;
+
+	public String getJournalMode() {
+		return journalMode;
+	}
+
+	public void setJournalMode(String journalMode) {
+		this.journalMode = journalMode;
+	}
+
+	public String getSynchronous() {
+		return synchronous;
+	}
+
+	public void setSynchronous(String synchronous) {
+		this.synchronous = synchronous;
+	}
+
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	public long getMmapSize() {
+		return mmapSize;
+	}
+
+	public void setMmapSize(long mmapSize) {
+		this.mmapSize = mmapSize;
+	}
+
+	public String getTempStore() {
+		return tempStore;
+	}
+
+	public void setTempStore(String tempStore) {
+		this.tempStore = tempStore;
+	}
+
+	public int getBusyTimeout() {
+		return busyTimeout;
+	}
+
+	public void setBusyTimeout(int busyTimeout) {
+		this.busyTimeout = busyTimeout;
+	}
+
+	public int getReaders() {
+		return readers;
+	}
+
+	public void setReaders(int readers) {
+		this.readers = readers;
+	}
+
+	/**
+	 * Builds the connection properties understood by the SQLite JDBC driver, which
+	 * runs a {@code PRAGMA} for each of them when the connection is opened.
+	 *
+	 * @return Properties with the pragmas of the profile.
+	 */
+	public Properties toPragmas() {
+		Properties pragmas = new Properties();
+		pragmas.setProperty("journal_mode", journalMode);
+		pragmas.setProperty("synchronous", synchronous);
+		pragmas.setProperty("cache_size", String.valueOf(cacheSize));
+		pragmas.setProperty("mmap_size", String.valueOf(mmapSize));
+		pragmas.setProperty("temp_store", tempStore);
+		pragmas.setProperty("busy_timeout", String.valueOf(busyTimeout));
+		return pragmas;
+	}
+}
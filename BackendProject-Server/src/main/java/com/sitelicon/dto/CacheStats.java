@@ -0,0 +1,56 @@
+package com.sitelicon.dto;
+
+/**
+ * Snapshot of the statistics of an entity cache, used to size it.
+ */
+public class CacheStats {
+	private final String name;
+	private final long size;
+	private final long hitCount;
+	private final long missCount;
+	private final double hitRate;
+	private final long evictionCount;
+
+	/**
+	 * Constructor to initialize the snapshot with all its values.
+	 *
+	 * @param name          The name of the cache.
+	 * @param size          The approximate number of entries in the cache.
+	 * @param hitCount      The number of lookups that found an entry.
+	 * @param missCount     The number of lookups that didn't find an entry.
+	 * @param hitRate       The ratio of lookups that found an entry.
+	 * @param evictionCount The number of entries evicted by size or expiration.
+	 */
+	public CacheStats(String name, long size, long hitCount, long missCount, double hitRate, long evictionCount) {
+		this.name = name;
+		this.size = size;
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.hitRate = hitRate;
+		this.evictionCount = evictionCount;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public double getHitRate() {
+		return hitRate;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+}
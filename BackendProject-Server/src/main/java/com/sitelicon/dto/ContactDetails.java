@@ -0,0 +1,12 @@
+package com.sitelicon.dto;
+
+import com.sitelicon.model.Contact;
+
+/**
+ * Projection of a {@link Contact} with the fields shown in the full view of the
+ * listings.
+ */
+public interface ContactDetails extends ContactSummary {
+
+	String getMessage();
+}
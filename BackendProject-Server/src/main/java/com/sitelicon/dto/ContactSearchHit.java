@@ -0,0 +1,81 @@
+package com.sitelicon.dto;
+
+import java.sql.Timestamp;
+
+import com.sitelicon.model.Reason;
+
+/**
+ * Contact found by a full-text search.
+ * <p>
+ * Besides the fields of the contact, it includes its name with the matched
+ * terms highlighted, a snippet of its message around the matched terms, and the
+ * score given by the search, where lower scores are better matches. The
+ * highlighted name and the snippet are HTML, escaped except for the
+ * {@code <mark>} elements around the matched terms.
+ */
+public class ContactSearchHit {
+	private final Long id;
+	private final String name;
+	private final String email;
+	private final Reason reason;
+	private final Timestamp timestamp;
+	private final String nameHighlight;
+	private final String messageSnippet;
+	private final double score;
+
+	/**
+	 * Constructor to initialize the hit with all its values.
+	 *
+	 * @param id             The unique identifier of the contact.
+	 * @param name           The name of the contact.
+	 * @param email          The email of the contact.
+	 * @param reason         The {@link Reason} of the contact.
+	 * @param timestamp      The time the contact was created.
+	 * @param nameHighlight  The name with the matched terms highlighted.
+	 * @param messageSnippet The fragment of the message around the matched terms.
+	 * @param score          The relevance of the contact for the search.
+	 */
+	public ContactSearchHit(Long id, String name, String email, Reason reason, Timestamp timestamp,
+			String nameHighlight, String messageSnippet, double score) {
+		this.id = id;
+		this.name = name;
+		this.email = email;
+		this.reason = reason;
+		this.timestamp = timestamp;
+		this.nameHighlight = nameHighlight;
+		this.messageSnippet = messageSnippet;
+		this.score = score;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public Reason getReason() {
+		return reason;
+	}
+
+	public Timestamp getTimestamp() {
+		return timestamp;
+	}
+
+	public String getNameHighlight() {
+		return nameHighlight;
+	}
+
+	public String getMessageSnippet() {
+		return messageSnippet;
+	}
+
+	public double getScore() {
+		return score;
+	}
+}
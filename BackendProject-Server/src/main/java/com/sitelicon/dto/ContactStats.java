@@ -0,0 +1,42 @@
+package com.sitelicon.dto;
+
+import java.sql.Timestamp;
+import java.util.Map;
+
+import com.sitelicon.model.Reason;
+
+/**
+ * Number of contacts created in a time bucket, by reason.
+ * <p>
+ * It includes the start of the bucket, the number of contacts of every
+ * {@link Reason} and the total of the bucket.
+ */
+public class ContactStats {
+	private final Timestamp start;
+	private final Map<Reason, Long> counts;
+	private final long total;
+
+	/**
+	 * Constructor to initialize the bucket with all its values.
+	 *
+	 * @param start  The time the bucket starts.
+	 * @param counts The number of contacts of every reason.
+	 */
+	public ContactStats(Timestamp start, Map<Reason, Long> counts) {
+		this.start = start;
+		this.counts = counts;
+		this.total = counts.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	public Timestamp getStart() {
+		return start;
+	}
+
+	public Map<Reason, Long> getCounts() {
+		return counts;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+}
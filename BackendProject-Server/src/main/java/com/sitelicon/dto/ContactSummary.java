@@ -0,0 +1,23 @@
+package com.sitelicon.dto;
+
+import java.sql.Timestamp;
+
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.model.Versioned;
+
+/**
+ * Projection of a {@link Contact} with the fields shown in the summary view of
+ * the listings, leaving out the message. Only its columns are selected from the
+ * database and no entity is created for it.
+ */
+public interface ContactSummary extends Versioned {
+
+	String getName();
+
+	String getEmail();
+
+	Reason getReason();
+
+	Timestamp getTimestamp();
+}
@@ -0,0 +1,76 @@
+package com.sitelicon.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of a keyset (cursor) paginated listing.
+ * <p>
+ * The page holds the items retrieved and the cursor that has to be sent as the
+ * {@code after} parameter to obtain the next page. The cursor is {@code null}
+ * when there aren't any more items after this page. Controllers expose it to the
+ * clients through the {@link #NEXT_CURSOR_HEADER} response header. The cursor
+ * is opaque to the clients: the ID listings use the ID of the last item, while
+ * other orderings may need more than one value to resume.
+ *
+ * @param <T> The type of the items of the page.
+ */
+public class CursorPage<T> {
+
+	/**
+	 * Name of the response header that carries the cursor of the next page.
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	private final List<T> items;
+	private final String nextCursor;
+
+	/**
+	 * Constructor to initialize a page with its items and the next cursor.
+	 *
+	 * @param items      The items of the page.
+	 * @param nextCursor The cursor of the next page, or {@code null} if this is the
+	 *                   last page.
+	 */
+	public CursorPage(List<T> items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * Builds a page from the rows retrieved for it. The rows are expected to be
+	 * fetched with a limit of one more than the page size, so the presence of that
+	 * extra row tells whether there is a next page without running a count query.
+	 *
+	 * @param <T>      The type of the items of the page.
+	 * @param rows     The rows retrieved, ordered by ID, up to {@code pageSize + 1}.
+	 * @param pageSize The maximum number of items of the page.
+	 * @param idOf     Function that extracts the ID of an item.
+	 * @return The page with at most {@code pageSize} items and the ID of the last
+	 *         one as the next cursor.
+	 */
+	public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, Long> idOf) {
+		if (rows.size() <= pageSize) {
+			return new CursorPage<>(rows, null);
+		}
+		List<T> items = rows.subList(0, pageSize);
+		return new CursorPage<>(items, String.valueOf(idOf.apply(items.get(pageSize - 1))));
+	}
+
+	/**
+	 * Checks whether there are more items after this page.
+	 *
+	 * @return {@code true} if there is a next page, {@code false} otherwise.
+	 */
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+}
@@ -0,0 +1,82 @@
+package com.sitelicon.dto;
+
+/**
+ * Snapshot of the state of the asynchronous contact ingestion queue.
+ * <p>
+ * It includes the current depth of the queue, the counters of contacts
+ * accepted, rejected because the queue was full, committed and failed, and the
+ * latency of the group commits done by the writer.
+ */
+public class IngestionStats {
+	private final int queueDepth;
+	private final int capacity;
+	private final long accepted;
+	private final long rejected;
+	private final long committed;
+	private final long failed;
+	private final long commits;
+	private final double averageCommitMillis;
+	private final double maxCommitMillis;
+
+	/**
+	 * Constructor to initialize the snapshot with all its values.
+	 *
+	 * @param queueDepth          Contacts waiting in the queue.
+	 * @param capacity            Maximum number of contacts the queue can hold.
+	 * @param accepted            Contacts accepted since the start.
+	 * @param rejected            Contacts rejected because the queue was full.
+	 * @param committed           Contacts written to the database.
+	 * @param failed              Contacts that couldn't be written.
+	 * @param commits             Group commits done by the writer.
+	 * @param averageCommitMillis Average duration of a group commit.
+	 * @param maxCommitMillis     Longest duration of a group commit.
+	 */
+	public IngestionStats(int queueDepth, int capacity, long accepted, long rejected, long committed, long failed,
+			long commits, double averageCommitMillis, double maxCommitMillis) {
+		this.queueDepth = queueDepth;
+		this.capacity = capacity;
+		this.accepted = accepted;
+		this.rejected = rejected;
+		this.committed = committed;
+		this.failed = failed;
+		this.commits = commits;
+		this.averageCommitMillis = averageCommitMillis;
+		this.maxCommitMillis = maxCommitMillis;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getAccepted() {
+		return accepted;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getCommitted() {
+		return committed;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public long getCommits() {
+		return commits;
+	}
+
+	public double getAverageCommitMillis() {
+		return averageCommitMillis;
+	}
+
+	public double getMaxCommitMillis() {
+		return maxCommitMillis;
+	}
+}
@@ -0,0 +1,12 @@
+package com.sitelicon.dto;
+
+/**
+ * Enumeration representing the views of the listings, chosen with the
+ * {@code view} parameter. The {@code SUMMARY} view has only the fields needed to
+ * identify every item, and the {@code FULL} one has all of them except the
+ * sensitive ones.
+ */
+public enum ListView {
+	SUMMARY,
+	FULL
+}
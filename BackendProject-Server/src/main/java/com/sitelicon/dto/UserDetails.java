@@ -0,0 +1,16 @@
+package com.sitelicon.dto;
+
+import java.sql.Timestamp;
+
+import com.sitelicon.model.User;
+
+/**
+ * Projection of a {@link User} with the fields shown in the full view of the
+ * listings. The password is never selected, so it can't end up in a response.
+ */
+public interface UserDetails extends UserSummary {
+
+	String getPhoneNumber();
+
+	Timestamp getTimestamp();
+}
@@ -0,0 +1,18 @@
+package com.sitelicon.dto;
+
+import com.sitelicon.model.User;
+import com.sitelicon.model.Versioned;
+
+/**
+ * Projection of a {@link User} with the fields shown in the summary view of the
+ * listings. Only its columns are selected from the database and no entity is
+ * created for it.
+ */
+public interface UserSummary extends Versioned {
+
+	String getName();
+
+	String getLastName();
+
+	String getEmail();
+}
@@ -0,0 +1,9 @@
+package com.sitelicon.exceptions;
+
+/**
+ * Custom exception class indicating that the cursor given to page through the
+ * results of a search isn't one returned by a previous page. Extends the
+ * {@link Exception} class.
+ */
+public class InvalidSearchCursor extends Exception {
+}
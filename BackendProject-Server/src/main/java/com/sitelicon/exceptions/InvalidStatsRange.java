@@ -0,0 +1,9 @@
+package com.sitelicon.exceptions;
+
+/**
+ * Custom exception class indicating that the time range asked for the
+ * statistics of the contacts is empty or spans more buckets than allowed.
+ * Extends the {@link Exception} class.
+ */
+public class InvalidStatsRange extends Exception {
+}
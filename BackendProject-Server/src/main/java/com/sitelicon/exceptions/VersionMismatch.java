@@ -0,0 +1,9 @@
+package com.sitelicon.exceptions;
+
+/**
+ * Custom exception class indicating that the current version of an entity
+ * doesn't match the one expected by the client. Extends the {@link Exception}
+ * class.
+ */
+public class VersionMismatch extends Exception {
+}
@@ -3,29 +3,41 @@ package com.sitelicon.model;
 
 import java.sql.Timestamp;
 
+import org.hibernate.annotations.DynamicUpdate;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * Entity class representing a contact form submission. Annotated with
  * {@link Entity} to indicate that it is a JPA entity. The ID of the contact is
- * automatically asigned by JPA.
+ * assigned by {@link com.sitelicon.service.IdAllocator} before it is stored, so
+ * the inserts can be sent to the database in JDBC batches. The version is
+ * incremented by JPA on every update and identifies the state of the contact in
+ * the entity tags of the API.
  * 
  * @see {@link Reason}
  */
 @Entity
-public class Contact {
+@DynamicUpdate
+@Table(indexes = { @Index(name = "idx_contact_reason_timestamp", columnList = "reason, timestamp"),
+		@Index(name = "idx_contact_email", columnList = "email") })
+public class Contact implements Versioned {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 	private String name;
 	private String email;
 	private Reason reason;
 	private String message;
 	private Timestamp timestamp;
+	@Version
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	private Long version;
 
 	/**
 	 * Default constructor, mandatory for JPA to work.
@@ -98,6 +110,14 @@ public class Contact {
 		this.timestamp = timestamp;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	/**
 	 * Gets called before the entity is persisted. Sets the creation timestamp using
 	 * the current system time.
@@ -115,6 +135,6 @@ public class Contact {
 	@Override
 	public String toString() {
 		return "Contact [id=" + id + ", name=" + name + ", email=" + email + ", reason=" + reason + ", message="
-				+ message + ", timestamp=" + timestamp + "]";
+				+ message + ", timestamp=" + timestamp + ", version=" + version + "]";
 	}
 }
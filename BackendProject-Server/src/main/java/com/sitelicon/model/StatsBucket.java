@@ -0,0 +1,34 @@
+package com.sitelicon.model;
+
+/**
+ * Enumeration representing the sizes of the time buckets the statistics of the
+ * contacts are grouped by.
+ * <p>
+ * The buckets are aligned to the epoch in UTC, so a day bucket starts at
+ * midnight UTC.
+ */
+public enum StatsBucket {
+	MINUTE(60_000L),
+	HOUR(3_600_000L),
+	DAY(86_400_000L);
+
+	private final long millis;
+
+	StatsBucket(long millis) {
+		this.millis = millis;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+
+	/**
+	 * Gets the start of the bucket a time belongs to.
+	 *
+	 * @param epochMillis The time, in milliseconds since the epoch.
+	 * @return The start of the bucket, in milliseconds since the epoch.
+	 */
+	public long startOf(long epochMillis) {
+		return Math.floorDiv(epochMillis, millis) * millis;
+	}
+}
@@ -2,20 +2,26 @@ package com.sitelicon.model;
 
 import java.sql.Timestamp;
 
+import org.hibernate.annotations.DynamicUpdate;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Version;
 
 /**
  * Entity class representing a user. Annotated with {@link Entity} to indicate
- * that it is a JPA entity. The ID of the user is automatically asigned by JPA.
+ * that it is a JPA entity. The ID of the user is assigned by
+ * {@link com.sitelicon.service.IdAllocator} before it is stored, so the inserts
+ * can be sent to the database in JDBC batches. The version is incremented by JPA
+ * on every update and identifies the state of the user in the entity tags of
+ * the API.
  */
 @Entity
-public class User {
+@DynamicUpdate
+public class User implements Versioned {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 	private String name;
 	private String lastName;
@@ -23,6 +29,9 @@ public class User {
 	private String email;
 	private String password;
 	private Timestamp timestamp;
+	@Version
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	private Long version;
 
 	/**
 	 * Default constructor, mandatory for JPA to work.
@@ -103,6 +112,14 @@ public class User {
 		this.timestamp = timestamp;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	/**
 	 * Gets called before the entity is persisted. Sets the creation timestamp using
 	 * the current system time.
@@ -120,6 +137,7 @@ public class User {
 	@Override
 	public String toString() {
 		return "User [id=" + id + ", name=" + name + ", lastName=" + lastName + ", phoneNumber=" + phoneNumber
-				+ ", email=" + email + ", password=" + password + ", timestamp=" + timestamp + "]";
+				+ ", email=" + email + ", password=" + password + ", timestamp=" + timestamp + ", version=" + version
+				+ "]";
 	}
 }
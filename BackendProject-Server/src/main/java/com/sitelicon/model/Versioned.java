@@ -0,0 +1,14 @@
+package com.sitelicon.model;
+
+/**
+ * Interface implemented by the entities, and their projections, that carry a
+ * row version. The version is incremented by JPA every time the row is updated,
+ * so the pair of ID and version identifies a state of the row and is used to
+ * build the entity tags of the responses.
+ */
+public interface Versioned {
+
+	Long getId();
+
+	Long getVersion();
+}
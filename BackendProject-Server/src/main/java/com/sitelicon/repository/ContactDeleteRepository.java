@@ -0,0 +1,50 @@
+package com.sitelicon.repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+import com.sitelicon.model.Contact;
+
+/**
+ * Repository fragment for deleting {@link Contact} entities with single
+ * {@code DELETE ... RETURNING} statements, without loading them first. Every
+ * method returns the contacts deleted with only their ID, reason and creation
+ * time, which is what the statistics of the contacts need to be kept up to
+ * date. Every call runs in its own transaction, unless there is one already.
+ *
+ * @see ContactDeleteRepositoryImpl
+ */
+public interface ContactDeleteRepository {
+
+	/**
+	 * Deletes a contact, only if it has the given version when one is given.
+	 *
+	 * @param id      The unique identifier of the contact to be deleted.
+	 * @param version The version the contact must have, or {@code null} to delete
+	 *                it whatever its version is.
+	 * @return List with the contact deleted, empty if it didn't exist or had
+	 *         another version.
+	 */
+	List<Contact> deleteReturningById(Long id, Long version);
+
+	/**
+	 * Deletes the contacts with the given IDs. The number of IDs must be kept
+	 * below the limit of parameters of SQLite.
+	 *
+	 * @param ids The unique identifiers of the contacts to be deleted.
+	 * @return List of the contacts deleted.
+	 */
+	List<Contact> deleteReturningByIdIn(Collection<Long> ids);
+
+	/**
+	 * Deletes up to a number of contacts created before the given time, oldest
+	 * IDs first, so deleting a large range in several calls doesn't hold the
+	 * write lock of the database for the whole range.
+	 *
+	 * @param before The time before which the contacts are deleted (exclusive).
+	 * @param limit  The maximum number of contacts to delete.
+	 * @return List of the contacts deleted.
+	 */
+	List<Contact> deleteReturningChunkCreatedBefore(Timestamp before, int limit);
+}
@@ -0,0 +1,68 @@
+package com.sitelicon.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+
+/**
+ * Implementation of {@link ContactDeleteRepository} built with
+ * {@link NamedParameterJdbcTemplate}, as JPA can't read the rows returned by a
+ * {@code DELETE} statement.
+ */
+public class ContactDeleteRepositoryImpl implements ContactDeleteRepository {
+
+	private static final String RETURNING = " RETURNING id, reason, timestamp";
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Override
+	@Transactional
+	public List<Contact> deleteReturningById(Long id, Long version) {
+		MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+		String sql = "DELETE FROM contact WHERE id = :id";
+		if (version != null) {
+			sql += " AND version = :version";
+			params.addValue("version", version);
+		}
+		return jdbcTemplate.query(sql + RETURNING, params, this::mapDeleted);
+	}
+
+	@Override
+	@Transactional
+	public List<Contact> deleteReturningByIdIn(Collection<Long> ids) {
+		return jdbcTemplate.query("DELETE FROM contact WHERE id IN (:ids)" + RETURNING,
+				new MapSqlParameterSource("ids", ids), this::mapDeleted);
+	}
+
+	@Override
+	@Transactional
+	public List<Contact> deleteReturningChunkCreatedBefore(Timestamp before, int limit) {
+		return jdbcTemplate.query("DELETE FROM contact WHERE id IN "
+				+ "(SELECT id FROM contact WHERE timestamp < :before ORDER BY id LIMIT :limit)" + RETURNING,
+				new MapSqlParameterSource("before", before).addValue("limit", limit), this::mapDeleted);
+	}
+
+	/**
+	 * Maps a row returned by a {@code DELETE} statement to a contact with only its
+	 * ID, reason and creation time.
+	 */
+	private Contact mapDeleted(ResultSet rs, int rowNum) throws SQLException {
+		Contact contact = new Contact();
+		contact.setId(rs.getLong("id"));
+		int reason = rs.getInt("reason");
+		contact.setReason(rs.wasNull() ? null : Reason.values()[reason]);
+		contact.setTimestamp(rs.getTimestamp("timestamp"));
+		return contact;
+	}
+}
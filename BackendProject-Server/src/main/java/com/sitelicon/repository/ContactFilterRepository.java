@@ -0,0 +1,39 @@
+package com.sitelicon.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+
+/**
+ * Repository fragment for filtering {@link Contact} entities by any combination
+ * of reason, email and creation time. Only the conditions of the filters given
+ * are added to the query, so SQLite can resolve them with the
+ * {@code (reason, timestamp)} and {@code (email)} indexes of the table.
+ *
+ * @see ContactFilterRepositoryImpl
+ */
+public interface ContactFilterRepository {
+
+	/**
+	 * Retrieves the contacts that match the given filters with an ID greater than
+	 * the given one, ordered by ID. The rows are read as the given type, which can
+	 * be the entity or an interface projection of it. With a projection, only its
+	 * columns are selected and no entities are created.
+	 *
+	 * @param <T>    The type the contacts are read as.
+	 * @param reason The reason of the contacts, or {@code null} for any reason.
+	 * @param email  The email of the contacts, or {@code null} for any email.
+	 * @param from   The time from which the contacts were created (inclusive), or
+	 *               {@code null} for no lower bound.
+	 * @param to     The time until which the contacts were created (exclusive), or
+	 *               {@code null} for no upper bound.
+	 * @param after  The ID after which the contacts are retrieved (exclusive).
+	 * @param limit  The maximum number of contacts to retrieve.
+	 * @param type   The entity class or the projection interface.
+	 * @return List of contacts.
+	 */
+	<T> List<T> findFiltered(Reason reason, String email, Timestamp from, Timestamp to, Long after, int limit,
+			Class<T> type);
+}
@@ -0,0 +1,94 @@
+package com.sitelicon.repository;
+
+import java.beans.PropertyDescriptor;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.criteria.AbstractQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+
+/**
+ * Implementation of {@link ContactFilterRepository} built with the JPA Criteria
+ * API. The projections are read as tuples of their properties and wrapped with
+ * a {@link ProjectionFactory}, as Spring Data does for the query methods.
+ */
+public class ContactFilterRepositoryImpl implements ContactFilterRepository {
+
+	private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public <T> List<T> findFiltered(Reason reason, String email, Timestamp from, Timestamp to, Long after,
+			int limit, Class<T> type) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		if (type == Contact.class) {
+			CriteriaQuery<Contact> query = cb.createQuery(Contact.class);
+			Root<Contact> root = query.from(Contact.class);
+			filter(cb, query, root, reason, email, from, to, after).select(root).orderBy(cb.asc(root.get("id")));
+			return entityManager.createQuery(query).setMaxResults(limit).getResultList().stream().map(type::cast)
+					.toList();
+		}
+
+		CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		Root<Contact> root = query.from(Contact.class);
+		List<Selection<?>> selections = new ArrayList<>();
+		for (PropertyDescriptor property : projectionFactory.getProjectionInformation(type).getInputProperties()) {
+			selections.add(root.get(property.getName()).alias(property.getName()));
+		}
+		query.multiselect(selections);
+		filter(cb, query, root, reason, email, from, to, after);
+		query.orderBy(cb.asc(root.get("id")));
+
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList().stream().map(tuple -> {
+			Map<String, Object> values = new HashMap<>();
+			for (TupleElement<?> element : tuple.getElements()) {
+				values.put(element.getAlias(), tuple.get(element));
+			}
+			return projectionFactory.createProjection(type, values);
+		}).toList();
+	}
+
+	/**
+	 * Adds the conditions of the filters given to a query.
+	 *
+	 * @return The query, for chaining.
+	 */
+	private <Q extends AbstractQuery<?>> Q filter(CriteriaBuilder cb, Q query, Root<Contact> root, Reason reason,
+			String email, Timestamp from, Timestamp to, Long after) {
+		List<Predicate> conditions = new ArrayList<>();
+		conditions.add(cb.greaterThan(root.get("id"), after));
+		if (reason != null) {
+			conditions.add(cb.equal(root.get("reason"), reason));
+		}
+		if (email != null) {
+			conditions.add(cb.equal(root.get("email"), email));
+		}
+		if (from != null) {
+			conditions.add(cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+		}
+		if (to != null) {
+			conditions.add(cb.lessThan(root.get("timestamp"), to));
+		}
+		query.where(conditions.toArray(Predicate[]::new));
+		return query;
+	}
+}
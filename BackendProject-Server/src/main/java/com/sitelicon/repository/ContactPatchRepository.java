@@ -0,0 +1,32 @@
+package com.sitelicon.repository;
+
+import java.util.List;
+
+import com.sitelicon.model.Contact;
+
+/**
+ * Repository fragment for partially updating {@link Contact} entities with a
+ * single {@code UPDATE ... RETURNING} statement, without loading them first.
+ * The statement returns the ID, reason and creation time the contact had
+ * before the update, which is what the statistics of the contacts need to move
+ * it to its new reason. Every call runs in its own transaction, unless there
+ * is one already.
+ *
+ * @see ContactPatchRepositoryImpl
+ */
+public interface ContactPatchRepository {
+
+	/**
+	 * Updates the fields present in the changes of a contact and increments its
+	 * version, only if it has the given version when one is given.
+	 *
+	 * @param id      The unique identifier of the contact to be updated.
+	 * @param changes The contact object with the fields to change, the
+	 *                {@code null} ones are left as they are.
+	 * @param version The version the contact must have, or {@code null} to update
+	 *                it whatever its version is.
+	 * @return List with the contact as it was before the update, empty if it
+	 *         didn't exist or had another version.
+	 */
+	List<Contact> patchReturningPrevious(Long id, Contact changes, Long version);
+}
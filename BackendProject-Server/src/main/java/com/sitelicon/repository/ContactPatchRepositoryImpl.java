@@ -0,0 +1,67 @@
+package com.sitelicon.repository;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+
+/**
+ * Implementation of {@link ContactPatchRepository} built with
+ * {@link NamedParameterJdbcTemplate}, as JPA can't read the rows returned by an
+ * {@code UPDATE} statement.
+ * <p>
+ * The {@code RETURNING} clause of SQLite only sees the new values of the row,
+ * so the previous ones are read by a materialized common table expression.
+ * It is evaluated once, by the {@code WHERE} clause, before the row is
+ * changed, and the {@code RETURNING} clause reads its result.
+ */
+public class ContactPatchRepositoryImpl implements ContactPatchRepository {
+
+	@Autowired
+	private NamedParameterJdbcTemplate jdbcTemplate;
+
+	@Override
+	@Transactional
+	public List<Contact> patchReturningPrevious(Long id, Contact changes, Long version) {
+		MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+		StringBuilder sql = new StringBuilder("WITH previous AS MATERIALIZED"
+				+ " (SELECT id, reason, timestamp FROM contact WHERE id = :id");
+		if (version != null) {
+			sql.append(" AND version = :version");
+			params.addValue("version", version);
+		}
+		sql.append(") UPDATE contact SET version = version + 1");
+		if (changes.getName() != null) {
+			sql.append(", name = :name");
+			params.addValue("name", changes.getName());
+		}
+		if (changes.getEmail() != null) {
+			sql.append(", email = :email");
+			params.addValue("email", changes.getEmail());
+		}
+		if (changes.getReason() != null) {
+			sql.append(", reason = :reason");
+			params.addValue("reason", changes.getReason().ordinal());
+		}
+		if (changes.getMessage() != null) {
+			sql.append(", message = :message");
+			params.addValue("message", changes.getMessage());
+		}
+		sql.append(" WHERE id IN (SELECT id FROM previous) RETURNING id,"
+				+ " (SELECT reason FROM previous) AS reason, (SELECT timestamp FROM previous) AS timestamp");
+
+		return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
+			Contact contact = new Contact();
+			contact.setId(rs.getLong("id"));
+			int reason = rs.getInt("reason");
+			contact.setReason(rs.wasNull() ? null : Reason.values()[reason]);
+			contact.setTimestamp(rs.getTimestamp("timestamp"));
+			return contact;
+		});
+	}
+}
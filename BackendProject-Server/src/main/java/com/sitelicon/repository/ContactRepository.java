@@ -1,14 +1,58 @@
 
 package com.sitelicon.repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import jakarta.persistence.QueryHint;
 
 import com.sitelicon.model.Contact;
 import com.sitelicon.model.User;
 
 /**
  * Repository interface for managing {@link User} entities. Extends
- * {@link JpaRepository} to inherit basic CRUD operations.
+ * {@link JpaRepository} to inherit basic CRUD operations,
+ * {@link ContactFilterRepository} to filter the contacts,
+ * {@link ContactPatchRepository} to partially update them, and
+ * {@link ContactDeleteRepository} to delete them.
  */
-public interface ContactRepository extends JpaRepository<Contact, Long> {
+public interface ContactRepository extends JpaRepository<Contact, Long>, ContactFilterRepository,
+		ContactPatchRepository, ContactDeleteRepository {
+
+	/**
+	 * Retrieves the contacts with an ID greater than the given one, ordered by ID.
+	 * The condition is resolved through the primary key index, so the cost of a
+	 * page doesn't depend on its position in the table.
+	 * <p>
+	 * The rows are read as the given type, which can be the entity or an interface
+	 * projection of it. With a projection, only its columns are selected and no
+	 * entities are created.
+	 *
+	 * @param <T>   The type the contacts are read as.
+	 * @param after The ID after which the contacts are retrieved (exclusive).
+	 * @param limit The maximum number of contacts to retrieve.
+	 * @param type  The entity class or the projection interface.
+	 * @return List of contacts.
+	 */
+	<T> List<T> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit, Class<T> type);
+
+	/**
+	 * Streams all the contacts ordered by ID. The rows are fetched from the
+	 * database in blocks of the given fetch size as the stream is consumed, and
+	 * the entities are loaded as read-only so Hibernate doesn't keep snapshots of
+	 * them. Must be called inside a transaction and the stream must be closed
+	 * after use.
+	 *
+	 * @return Stream of contacts.
+	 */
+	@QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true") })
+	@Query("select c from Contact c order by c.id")
+	Stream<Contact> streamAll();
 }
@@ -1,7 +1,19 @@
 package com.sitelicon.repository;
 
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
+import com.sitelicon.dto.UserDetails;
 import com.sitelicon.model.User;
 
 /**
@@ -9,4 +21,61 @@ import com.sitelicon.model.User;
  * {@link JpaRepository} to inherit basic CRUD operations.
  */
 public interface UserRepository extends JpaRepository<User, Long> {
+
+	/**
+	 * Retrieves the users with an ID greater than the given one, ordered by ID. The
+	 * condition is resolved through the primary key index, so the cost of a page
+	 * doesn't depend on its position in the table.
+	 * <p>
+	 * The rows are read as the given type, which can be the entity or an interface
+	 * projection of it. With a projection, only its columns are selected and no
+	 * entities are created.
+	 *
+	 * @param <T>   The type the users are read as.
+	 * @param after The ID after which the users are retrieved (exclusive).
+	 * @param limit The maximum number of users to retrieve.
+	 * @param type  The entity class or the projection interface.
+	 * @return List of users.
+	 */
+	<T> List<T> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit, Class<T> type);
+
+	/**
+	 * Streams all the users ordered by ID, as the {@link UserDetails} projection so
+	 * the passwords are never read. The rows are fetched from the database in
+	 * blocks of the given fetch size as the stream is consumed, and no entities
+	 * are created for them. Must be called inside a transaction and the stream
+	 * must be closed after use.
+	 *
+	 * @return Stream of users.
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select u.id as id, u.name as name, u.lastName as lastName, u.phoneNumber as phoneNumber,"
+			+ " u.email as email, u.timestamp as timestamp, u.version as version from User u order by u.id")
+	Stream<UserDetails> streamAll();
+
+	/**
+	 * Deletes a user with a single {@code DELETE} statement, without loading it
+	 * first.
+	 *
+	 * @param id The unique identifier of the user to be deleted.
+	 * @return The number of users deleted, 0 if it didn't exist.
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from User u where u.id = :id")
+	int deleteDirectlyById(Long id);
+
+	/**
+	 * Deletes a user with a single {@code DELETE} statement, without loading it
+	 * first, only if it has the given version.
+	 *
+	 * @param id      The unique identifier of the user to be deleted.
+	 * @param version The version the user must have.
+	 * @return The number of users deleted, 0 if it didn't exist or had another
+	 *         version.
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from User u where u.id = :id and u.version = :version")
+	int deleteDirectlyByIdAndVersion(Long id, Long version);
 }
@@ -0,0 +1,263 @@
+package com.sitelicon.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import com.sitelicon.dto.IngestionStats;
+import com.sitelicon.model.Contact;
+import com.sitelicon.repository.ContactRepository;
+
+/**
+ * Write-behind queue for contact submissions, enabled with
+ * {@code contacts.ingestion.mode=async}.
+ * <p>
+ * The contacts submitted are kept in a bounded in-memory queue and a single
+ * writer thread stores them in the database in groups: a group is committed
+ * when it reaches {@code contacts.ingestion.batch-size} contacts or when
+ * {@code contacts.ingestion.flush-interval} milliseconds have passed since its
+ * first contact was taken from the queue. If a group fails, its contacts are
+ * retried one by one so a single invalid contact doesn't discard the rest.
+ * <p>
+ * When the application shuts down, the queue stops accepting contacts after the
+ * web server has stopped, and the writer commits everything left in the queue
+ * before the data source is closed.
+ *
+ * @see Contact
+ * @see ContactRepository
+ */
+@Service
+@ConditionalOnProperty(name = "contacts.ingestion.mode", havingValue = "async")
+public class ContactIngestionQueue implements SmartLifecycle, MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(ContactIngestionQueue.class);
+
+	@Autowired
+	private ContactRepository contactRepository;
+
+	@Autowired
+	private ContactStatsService contactStatsService;
+
+	@Autowired
+	private IdAllocator idAllocator;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${contacts.ingestion.capacity}")
+	private int capacity;
+
+	@Value("${contacts.ingestion.batch-size}")
+	private int batchSize;
+
+	@Value("${contacts.ingestion.flush-interval}")
+	private long flushInterval;
+
+	private BlockingQueue<Contact> queue;
+	private TransactionTemplate transactionTemplate;
+	private Thread writer;
+	private volatile boolean running;
+
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder committed = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final AtomicLong commits = new AtomicLong();
+	private final AtomicLong commitNanos = new AtomicLong();
+	private final AtomicLong maxCommitNanos = new AtomicLong();
+	private volatile Timer commitTimer;
+
+	/**
+	 * Puts a contact in the queue to be stored later by the writer.
+	 *
+	 * @param contact The contact to be stored.
+	 * @return {@code true} if the contact was accepted, {@code false} if the queue
+	 *         is full or shutting down.
+	 */
+	public boolean submit(Contact contact) {
+		contact.setId(null);
+		contact.setVersion(null);
+		if (running && queue.offer(contact)) {
+			accepted.increment();
+			return true;
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * Takes a snapshot of the state of the queue and the writer.
+	 *
+	 * @return The current statistics.
+	 */
+	public IngestionStats getStats() {
+		long commitCount = commits.get();
+		double averageMillis = commitCount == 0 ? 0 : commitNanos.get() / 1e6 / commitCount;
+		return new IngestionStats(queue.size(), capacity, accepted.sum(), rejected.sum(), committed.sum(),
+				failed.sum(), commitCount, averageMillis, maxCommitNanos.get() / 1e6);
+	}
+
+	/**
+	 * Registers the depth of the queue and the counters of the contacts as
+	 * metrics, so they can be scraped with the rest.
+	 *
+	 * @param registry The registry the metrics are added to.
+	 */
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("contacts.ingestion.queue.depth", this, ingestion -> ingestion.queue == null ? 0
+				: ingestion.queue.size()).description("Contacts waiting in the ingestion queue").register(registry);
+		Gauge.builder("contacts.ingestion.queue.capacity", this, ingestion -> ingestion.capacity)
+				.description("Maximum number of contacts the ingestion queue can hold").register(registry);
+		FunctionCounter.builder("contacts.ingestion.contacts", accepted, LongAdder::sum).tag("outcome", "accepted")
+				.register(registry);
+		FunctionCounter.builder("contacts.ingestion.contacts", rejected, LongAdder::sum).tag("outcome", "rejected")
+				.register(registry);
+		FunctionCounter.builder("contacts.ingestion.contacts", committed, LongAdder::sum)
+				.tag("outcome", "committed").register(registry);
+		FunctionCounter.builder("contacts.ingestion.contacts", failed, LongAdder::sum).tag("outcome", "failed")
+				.register(registry);
+		commitTimer = Timer.builder("contacts.ingestion.commit").description("Duration of the group commits")
+				.publishPercentileHistogram().register(registry);
+	}
+
+	/**
+	 * Creates the queue and starts the writer thread.
+	 */
+	@Override
+	public void start() {
+		queue = new ArrayBlockingQueue<>(capacity);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		running = true;
+		writer = new Thread(this::drain, "contact-ingestion-writer");
+		writer.start();
+	}
+
+	/**
+	 * Stops accepting contacts and waits until the writer has committed all the
+	 * contacts left in the queue.
+	 */
+	@Override
+	public void stop() {
+		running = false;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Starts before the web server and stops after it, so no request can submit a
+	 * contact once the queue has been drained. The phase is strictly lower than
+	 * the one the web server starts and stops in, {@code DEFAULT_PHASE - 2048},
+	 * as the lifecycles of the same phase are stopped in no particular order.
+	 */
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	/**
+	 * Loop of the writer thread. Takes groups of contacts from the queue and
+	 * commits them until the queue is stopped and empty.
+	 */
+	private void drain() {
+		List<Contact> group = new ArrayList<>(batchSize);
+		try {
+			while (running || !queue.isEmpty()) {
+				Contact first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+				while (group.size() < batchSize) {
+					if (queue.drainTo(group, batchSize - group.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					Contact next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					group.add(next);
+				}
+				commit(group);
+				group.clear();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Contact ingestion writer interrupted with {} contacts in the queue", queue.size());
+		}
+	}
+
+	/**
+	 * Stores a group of contacts in a single transaction, with IDs reserved before
+	 * it is opened. If the transaction fails, the contacts are stored one by one
+	 * with the same IDs.
+	 *
+	 * @param group The contacts to be stored.
+	 */
+	private void commit(List<Contact> group) {
+		long start = System.nanoTime();
+		try {
+			long[] ids = idAllocator.next(IdAllocator.CONTACT, group.size());
+			for (int i = 0; i < ids.length; i++) {
+				group.get(i).setId(ids[i]);
+			}
+			transactionTemplate.executeWithoutResult(
+					status -> contactStatsService.recordCreated(contactRepository.saveAll(group)));
+			committed.add(group.size());
+		} catch (RuntimeException e) {
+			log.warn("Group commit of {} contacts failed, storing them one by one", group.size(), e);
+			for (Contact contact : group) {
+				contact.setVersion(null);
+				try {
+					if (contact.getId() == null) {
+						contact.setId(idAllocator.next(IdAllocator.CONTACT));
+					}
+					transactionTemplate.executeWithoutResult(
+							status -> contactStatsService.recordCreated(List.of(contactRepository.save(contact))));
+					committed.increment();
+				} catch (RuntimeException ex) {
+					failed.increment();
+					log.error("Couldn't store the contact {}", contact, ex);
+				}
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		commits.incrementAndGet();
+		commitNanos.addAndGet(elapsed);
+		maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+		Timer timer = commitTimer;
+		if (timer != null) {
+			timer.record(elapsed, TimeUnit.NANOSECONDS);
+		}
+	}
+}
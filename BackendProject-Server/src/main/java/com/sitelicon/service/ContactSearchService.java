@@ -0,0 +1,294 @@
+package com.sitelicon.service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.HtmlUtils;
+
+import jakarta.annotation.PostConstruct;
+
+import com.sitelicon.dto.ContactSearchHit;
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.exceptions.InvalidSearchCursor;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+
+/**
+ * Service class that handles the full-text search over the name and message of
+ * the contacts.
+ * <p>
+ * The search is backed by the {@code contact_fts} FTS5 table, an external
+ * content index of the {@code contact} table kept in sync by triggers on every
+ * insert, update and delete, whatever the path used to write the contact.
+ * <p>
+ * When the index is created on a database that already has contacts, the
+ * existing ones are indexed in batches by a background job, while the new ones
+ * are indexed by the triggers. The progress of the job is kept in the
+ * {@code contact_fts_backfill} table, so it resumes where it stopped if the
+ * application is restarted before it finishes.
+ *
+ * @see {@link Contact}
+ * @see {@link ContactSearchHit}
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class ContactSearchService {
+
+	private static final Logger log = LoggerFactory.getLogger(ContactSearchService.class);
+
+	/**
+	 * Condition that holds for the contacts that existed when the index was created
+	 * and haven't been indexed yet by the backfill job. The triggers leave them to
+	 * the job, which indexes their current content.
+	 */
+	private static final String PENDING_BACKFILL = "EXISTS (SELECT 1 FROM contact_fts_backfill b"
+			+ " WHERE old.id > b.last_id AND old.id <= b.max_id)";
+
+	/**
+	 * Characters that delimit the matched terms in the text returned by the index.
+	 * They can't be the HTML markers themselves, as the text is escaped once it is
+	 * read and the markers have to survive it.
+	 */
+	private static final char MATCH_START = '\u0002';
+	private static final char MATCH_END = '\u0003';
+
+	private static final String SEARCH = "SELECT c.id, c.name, c.email, c.reason, c.timestamp,"
+			+ " highlight(contact_fts, 0, char(2), char(3)) AS name_highlight,"
+			+ " snippet(contact_fts, 1, char(2), char(3), '…', 16) AS message_snippet, rank AS score"
+			+ " FROM contact_fts JOIN contact c ON c.id = contact_fts.rowid WHERE contact_fts MATCH ?";
+
+	private static final String AFTER_CURSOR = " AND (rank > ? OR (rank = ? AND contact_fts.rowid > ?))";
+
+	private static final String ORDER = " ORDER BY rank, contact_fts.rowid LIMIT ?";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Default number of contacts of a page when the client doesn't ask for a size.
+	 */
+	@Value("${api.pagination.default-limit}")
+	private int defaultPageSize;
+
+	/**
+	 * Maximum number of contacts of a page, no matter the size asked by the
+	 * client.
+	 */
+	@Value("${api.pagination.max-limit}")
+	private int maxPageSize;
+
+	/**
+	 * Number of existing contacts indexed by each transaction of the backfill job.
+	 */
+	@Value("${contacts.search.backfill-batch-size}")
+	private int backfillBatchSize;
+
+	/**
+	 * Creates the index, its triggers and the backfill progress if they don't
+	 * exist yet. It runs once the schema of the contact table is up to date and
+	 * before the application accepts requests, so no contact is written while the
+	 * contacts to backfill are being counted.
+	 */
+	@PostConstruct
+	void createIndex() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Integer existing = jdbcTemplate.queryForObject(
+					"SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name = 'contact_fts'", Integer.class);
+			if (existing == 0) {
+				jdbcTemplate.execute("CREATE VIRTUAL TABLE contact_fts USING fts5(name, message,"
+						+ " content='contact', content_rowid='id', tokenize='unicode61 remove_diacritics 2')");
+				// Matches in the name weigh twice as much as matches in the message.
+				jdbcTemplate.update("INSERT INTO contact_fts(contact_fts, rank) VALUES ('rank', 'bm25(2.0, 1.0)')");
+				jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS contact_fts_backfill ("
+						+ "id INTEGER PRIMARY KEY CHECK (id = 1), last_id INTEGER NOT NULL, max_id INTEGER NOT NULL)");
+				jdbcTemplate.update("INSERT INTO contact_fts_backfill (id, last_id, max_id)"
+						+ " SELECT 1, 0, id FROM contact ORDER BY id DESC LIMIT 1");
+			}
+
+			jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS contact_fts_insert AFTER INSERT ON contact BEGIN"
+					+ " INSERT INTO contact_fts(rowid, name, message) VALUES (new.id, new.name, new.message); END");
+			jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS contact_fts_delete AFTER DELETE ON contact"
+					+ " WHEN NOT " + PENDING_BACKFILL + " BEGIN"
+					+ " INSERT INTO contact_fts(contact_fts, rowid, name, message)"
+					+ " VALUES ('delete', old.id, old.name, old.message); END");
+			jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS contact_fts_update AFTER UPDATE OF name, message"
+					+ " ON contact WHEN NOT " + PENDING_BACKFILL + " BEGIN"
+					+ " INSERT INTO contact_fts(contact_fts, rowid, name, message)"
+					+ " VALUES ('delete', old.id, old.name, old.message);"
+					+ " INSERT INTO contact_fts(rowid, name, message) VALUES (new.id, new.name, new.message); END");
+		});
+	}
+
+	/**
+	 * Indexes the contacts that existed when the index was created, in batches of
+	 * {@code contacts.search.backfill-batch-size} contacts with one transaction per
+	 * batch, so the writers are never blocked for long. It runs in the background
+	 * once the application is ready and does nothing if there is nothing left to
+	 * index.
+	 */
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillIndex() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		long indexed = 0;
+		int batch;
+		do {
+			batch = transactionTemplate.execute(status -> indexNextBatch());
+			indexed += batch;
+		} while (batch > 0);
+
+		if (indexed > 0) {
+			log.info("Indexed {} existing contacts for the full-text search", indexed);
+		}
+	}
+
+	/**
+	 * Indexes the next batch of the contacts that existed when the index was
+	 * created, and records the progress. Once the last batch is indexed, the
+	 * progress is removed.
+	 *
+	 * @return The number of contacts indexed.
+	 */
+	private int indexNextBatch() {
+		List<long[]> progress = jdbcTemplate.query("SELECT last_id, max_id FROM contact_fts_backfill",
+				(rs, i) -> new long[] { rs.getLong("last_id"), rs.getLong("max_id") });
+		if (progress.isEmpty()) {
+			return 0;
+		}
+		long lastId = progress.get(0)[0];
+		long maxId = progress.get(0)[1];
+
+		Long batchEnd = jdbcTemplate.queryForObject("SELECT max(id) FROM (SELECT id FROM contact"
+				+ " WHERE id > ? AND id <= ? ORDER BY id LIMIT ?)", Long.class, lastId, maxId, backfillBatchSize);
+		if (batchEnd == null) {
+			jdbcTemplate.update("DELETE FROM contact_fts_backfill");
+			return 0;
+		}
+
+		int indexed = jdbcTemplate.update("INSERT INTO contact_fts(rowid, name, message)"
+				+ " SELECT id, name, message FROM contact WHERE id > ? AND id <= ?", lastId, batchEnd);
+		if (batchEnd >= maxId) {
+			jdbcTemplate.update("DELETE FROM contact_fts_backfill");
+		} else {
+			jdbcTemplate.update("UPDATE contact_fts_backfill SET last_id = ?", batchEnd);
+		}
+		return indexed;
+	}
+
+	/**
+	 * Searches the contacts whose name or message contain all the words of the
+	 * query, ranked by relevance. Every word matches the terms that start with
+	 * it, and the operators of the FTS5 query syntax are taken as plain text.
+	 * <p>
+	 * As the results are ordered by relevance instead of by ID, the cursor of the
+	 * pages is the score and the ID of the last result returned, in the form
+	 * {@code <score>_<id>}, and the next page starts after that pair.
+	 * <p>
+	 * The highlighted name and the snippet are HTML-escaped, so the only markup
+	 * they contain are the {@code <mark>} elements around the matched terms.
+	 *
+	 * @param query The words to search.
+	 * @param after The cursor returned with the previous page, or {@code null} to
+	 *              start from the best match.
+	 * @param limit The requested size of the page, or {@code null} to use the
+	 *              default one. It is capped to the configured maximum.
+	 * @return Page of contacts found, from the best match to the worst one, with
+	 *         the cursor of the next page.
+	 * @throws InvalidSearchCursor If the cursor isn't one returned by a search.
+	 */
+	@Transactional(readOnly = true)
+	public CursorPage<ContactSearchHit> search(String query, String after, Integer limit)
+			throws InvalidSearchCursor {
+		int pageSize = limit == null || limit < 1 ? defaultPageSize : Math.min(limit, maxPageSize);
+		RowMapper<ContactSearchHit> mapper = (rs, i) -> new ContactSearchHit(rs.getLong("id"), rs.getString("name"),
+				rs.getString("email"), reasonOf(rs), rs.getTimestamp("timestamp"),
+				toHtml(rs.getString("name_highlight")), toHtml(rs.getString("message_snippet")), rs.getDouble("score"));
+		List<ContactSearchHit> hits;
+		if (after == null) {
+			hits = jdbcTemplate.query(SEARCH + ORDER, mapper, toMatchExpression(query), pageSize + 1);
+		} else {
+			int separator = after.lastIndexOf('_');
+			double score;
+			long id;
+			try {
+				score = Double.parseDouble(after.substring(0, Math.max(separator, 0)));
+				id = Long.parseLong(after.substring(separator + 1));
+			} catch (NumberFormatException e) {
+				throw new InvalidSearchCursor();
+			}
+			hits = jdbcTemplate.query(SEARCH + AFTER_CURSOR + ORDER, mapper, toMatchExpression(query), score, score,
+					id, pageSize + 1);
+		}
+		if (hits.size() <= pageSize) {
+			return new CursorPage<>(hits, null);
+		}
+		ContactSearchHit last = hits.get(pageSize - 1);
+		return new CursorPage<>(hits.subList(0, pageSize), last.getScore() + "_" + last.getId());
+	}
+
+	/**
+	 * Reads the reason of a contact, stored as the ordinal of the enum as the
+	 * entity does. The column is nullable and the rows may be written outside JPA,
+	 * so a null reason or an ordinal that isn't the one of any reason is read as
+	 * {@code null}, instead of failing the whole search.
+	 *
+	 * @param rs The row of the contact.
+	 * @return The reason of the contact, or {@code null} if it has no valid one.
+	 */
+	private Reason reasonOf(ResultSet rs) throws SQLException {
+		int ordinal = rs.getInt("reason");
+		Reason[] reasons = Reason.values();
+		if (rs.wasNull() || ordinal < 0 || ordinal >= reasons.length) {
+			return null;
+		}
+		return reasons[ordinal];
+	}
+
+	/**
+	 * Escapes the text returned by the index and turns the delimiters of the
+	 * matched terms into {@code <mark>} elements.
+	 *
+	 * @param text The text with the matched terms delimited, or {@code null}.
+	 * @return The HTML of the text, or {@code null} if there is no text.
+	 */
+	private String toHtml(String text) {
+		if (text == null) {
+			return null;
+		}
+		return HtmlUtils.htmlEscape(text).replace(String.valueOf(MATCH_START), "<mark>")
+				.replace(String.valueOf(MATCH_END), "</mark>");
+	}
+
+	/**
+	 * Builds the FTS5 expression that matches the contacts containing all the
+	 * words of the query. Every word is quoted, so its characters are never taken
+	 * as operators, and made a prefix query.
+	 *
+	 * @param query The words to search.
+	 * @return The FTS5 match expression.
+	 */
+	private String toMatchExpression(String query) {
+		return Arrays.stream(query.trim().split("\\s+")).map(word -> "\"" + word.replace("\"", "\"\"") + "\"*")
+				.collect(Collectors.joining(" "));
+	}
+}
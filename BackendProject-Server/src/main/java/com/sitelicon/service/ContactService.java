@@ -1,14 +1,34 @@
 package com.sitelicon.service;
 
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import com.sitelicon.dto.ContactDetails;
+import com.sitelicon.dto.ContactSummary;
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.dto.ListView;
 import com.sitelicon.exceptions.ContactNotFound;
+import com.sitelicon.exceptions.VersionMismatch;
 import com.sitelicon.exceptions.UserNotFound;
 import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
 import com.sitelicon.repository.ContactRepository;
 
 /**
@@ -23,58 +43,285 @@ public class ContactService {
 	@Autowired
 	private ContactRepository contactRepository;
 
+	@Autowired
+	private ContactStatsService contactStatsService;
+
+	@Autowired
+	private IdAllocator idAllocator;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Default number of contacts of a page when the client doesn't ask for a size.
+	 */
+	@Value("${api.pagination.default-limit}")
+	private int defaultPageSize;
+
+	/**
+	 * Maximum number of contacts of a page, no matter the size asked by the
+	 * client.
+	 */
+	@Value("${api.pagination.max-limit}")
+	private int maxPageSize;
+
+	/**
+	 * Maximum number of contacts deleted by each statement of a bulk delete.
+	 */
+	@Value("${contacts.delete.chunk-size}")
+	private int deleteChunkSize;
+
+	/**
+	 * Retrieves a page of contacts ordered by ID, starting after the given cursor.
+	 * The size of the page is capped to the configured maximum. The contacts are
+	 * read as the projection of the given view, so only its columns are selected.
+	 *
+	 * @param after The ID after which the page starts, or {@code null} to start
+	 *              from the beginning.
+	 * @param limit The requested size of the page, or {@code null} to use the
+	 *              default one.
+	 * @param view  The view of the contacts: {@link ContactSummary} for the
+	 *              summary one and {@link ContactDetails} for the full one.
+	 * @return Page of contacts with the cursor of the next page.
+	 */
+	@Transactional(readOnly = true)
+	public CursorPage<? extends ContactSummary> getContactsPage(Long after, Integer limit, ListView view) {
+		int pageSize = limit == null || limit < 1 ? defaultPageSize : Math.min(limit, maxPageSize);
+		List<? extends ContactSummary> contacts = contactRepository.findByIdGreaterThanOrderByIdAsc(
+				after == null ? 0L : after, Limit.of(pageSize + 1), projectionOf(view));
+		return CursorPage.of(contacts, pageSize, ContactSummary::getId);
+	}
+
+	/**
+	 * Retrieves a page of the contacts that match the given filters, ordered by ID
+	 * and starting after the given cursor. The size of the page is capped to the
+	 * configured maximum.
+	 *
+	 * @param reason The reason of the contacts, or {@code null} for any reason.
+	 * @param email  The email of the contacts, or {@code null} for any email.
+	 * @param from   The time from which the contacts were created (inclusive), or
+	 *               {@code null} for no lower bound.
+	 * @param to     The time until which the contacts were created (exclusive), or
+	 *               {@code null} for no upper bound.
+	 * @param after  The ID after which the page starts, or {@code null} to start
+	 *               from the beginning.
+	 * @param limit  The requested size of the page, or {@code null} to use the
+	 *               default one.
+	 * @param view   The view of the contacts.
+	 * @return Page of contacts with the cursor of the next page.
+	 */
+	@Transactional(readOnly = true)
+	public CursorPage<? extends ContactSummary> findContacts(Reason reason, String email, Timestamp from,
+			Timestamp to, Long after, Integer limit, ListView view) {
+		int pageSize = limit == null || limit < 1 ? defaultPageSize : Math.min(limit, maxPageSize);
+		List<? extends ContactSummary> contacts = contactRepository.findFiltered(reason, email, from, to,
+				after == null ? 0L : after, pageSize + 1, projectionOf(view));
+		return CursorPage.of(contacts, pageSize, ContactSummary::getId);
+	}
+
 	/**
-	 * Retrieves a list of all contacts.
+	 * Gets the projection the contacts are read as in a view.
 	 *
-	 * @return List of contacts.
+	 * @param view The view of the contacts.
+	 * @return {@link ContactSummary} for the summary view and
+	 *         {@link ContactDetails} for the full one.
 	 */
-	public List<Contact> getAllContacts() {
-		return contactRepository.findAll();
+	private Class<? extends ContactSummary> projectionOf(ListView view) {
+		return view == ListView.SUMMARY ? ContactSummary.class : ContactDetails.class;
 	}
 
 	/**
-	 * Retrieves a contact by its unique identifier.
+	 * Reads all the contacts ordered by ID and hands them one by one to the given
+	 * action as they are read. Every contact is detached from the persistence
+	 * context once the action has processed it, so the memory used doesn't grow
+	 * with the size of the table.
+	 *
+	 * @param action The action that processes every contact.
+	 */
+	@Transactional(readOnly = true)
+	public void exportContacts(Consumer<Contact> action) {
+		try (Stream<Contact> contacts = contactRepository.streamAll()) {
+			contacts.forEach(contact -> {
+				action.accept(contact);
+				entityManager.detach(contact);
+			});
+		}
+	}
+
+	/**
+	 * Retrieves a contact by its unique identifier. The contact is kept in the
+	 * {@code contacts} cache, so later lookups don't reach the database until it
+	 * is updated, deleted or expired.
 	 *
 	 * @param id The unique identifier of the contact.
 	 * @return Contact object if found.
 	 * @throws ContactNotFound If the contact with the specified ID is not found.
 	 */
+	@Transactional(readOnly = true)
+	@Cacheable(cacheNames = "contacts", key = "#id")
 	public Contact getContactById(Long id) throws ContactNotFound {
 		return contactRepository.findById(id).orElseThrow(() -> new ContactNotFound());
 	}
 
 	/**
-	 * Creates a new contact.
+	 * Creates a new contact. Any ID present in the given contact is replaced by a
+	 * new one, so it is always inserted.
 	 *
 	 * @param user The contact object to be created.
 	 */
 	public void createContact(Contact contact) {
-		contactRepository.save(contact);
+		contact.setId(idAllocator.next(IdAllocator.CONTACT));
+		contact.setVersion(null);
+		contactStatsService.recordCreated(List.of(contactRepository.save(contact)));
+	}
+
+	/**
+	 * Creates several contacts in a single transaction. The IDs are reserved
+	 * before the transaction is opened and the inserts are sent to the database in
+	 * JDBC batches. Any ID present in the given contacts is replaced by a new one,
+	 * so they are always inserted.
+	 *
+	 * @param contacts The contact objects to be created.
+	 * @return List with the IDs generated, in the same order as the contacts.
+	 */
+	public List<Long> createContacts(List<Contact> contacts) {
+		long[] ids = idAllocator.next(IdAllocator.CONTACT, contacts.size());
+		for (int i = 0; i < ids.length; i++) {
+			contacts.get(i).setId(ids[i]);
+			contacts.get(i).setVersion(null);
+		}
+		new TransactionTemplate(transactionManager)
+				.executeWithoutResult(status -> contactStatsService.recordCreated(contactRepository.saveAll(contacts)));
+		return Arrays.stream(ids).boxed().toList();
 	}
 
 	/**
-	 * Updates an existing contact. Updates all the fields except ID and Timestamp
+	 * Updates an existing contact. Updates all the fields except ID, Timestamp and
+	 * Version. If an expected version is given, the contact is only updated when
+	 * its current version is that one.
 	 *
-	 * @param id          The unique identifier of the contact to be updated.
-	 * @param updatedUser The updated contact object.
-	 * @throws UserNotFound If the contact with the specified ID is not found.
+	 * @param id              The unique identifier of the contact to be updated.
+	 * @param updatedContact  The updated contact object.
+	 * @param expectedVersion The version the contact must have, or {@code null} to
+	 *                        update it whatever its version is.
+	 * @return The updated contact, with its new version.
+	 * @throws ContactNotFound If the contact with the specified ID is not found.
+	 * @throws VersionMismatch If the contact doesn't have the expected version.
 	 */
-	public void updateContact(Long id, Contact updatedContact) throws ContactNotFound {
+	@Transactional
+	@CacheEvict(cacheNames = { "contacts", "contact-responses" }, key = "#id")
+	public Contact updateContact(Long id, Contact updatedContact, Long expectedVersion)
+			throws ContactNotFound, VersionMismatch {
 		Contact contactToUpdate = contactRepository.findById(id).orElseThrow(() -> new ContactNotFound());
+		if (expectedVersion != null && !expectedVersion.equals(contactToUpdate.getVersion())) {
+			throw new VersionMismatch();
+		}
 
-		BeanUtils.copyProperties(updatedContact, contactToUpdate, "id", "timestamps");
+		Reason previousReason = contactToUpdate.getReason();
+		BeanUtils.copyProperties(updatedContact, contactToUpdate, "id", "timestamp", "version");
+		Contact contact = contactRepository.saveAndFlush(contactToUpdate);
+		contactStatsService.recordMoved(contact.getTimestamp(), previousReason, contact.getReason());
+		return contact;
+	}
 
-		contactRepository.save(contactToUpdate);
+	/**
+	 * Partially updates an existing contact with a single {@code UPDATE}
+	 * statement, without reading it first. Only the fields present in the changes
+	 * are written, and the version is incremented. If an expected version is
+	 * given, the contact is only updated when its current version is that one.
+	 * The statement returns the reason the contact had, so it is moved to the
+	 * new one in the statistics without reading it first.
+	 *
+	 * @param id              The unique identifier of the contact to be updated.
+	 * @param changes         The contact object with the fields to change, the
+	 *                        {@code null} ones are left as they are.
+	 * @param expectedVersion The version the contact must have, or {@code null} to
+	 *                        update it whatever its version is.
+	 * @throws ContactNotFound If the contact with the specified ID is not found.
+	 * @throws VersionMismatch If the contact doesn't have the expected version.
+	 */
+	@Transactional
+	@CacheEvict(cacheNames = { "contacts", "contact-responses" }, key = "#id")
+	public void patchContact(Long id, Contact changes, Long expectedVersion)
+			throws ContactNotFound, VersionMismatch {
+		List<Contact> previous = contactRepository.patchReturningPrevious(id, changes, expectedVersion);
+		if (previous.isEmpty()) {
+			if (expectedVersion != null && contactRepository.existsById(id)) {
+				throw new VersionMismatch();
+			}
+			throw new ContactNotFound();
+		}
+		if (changes.getReason() != null) {
+			Contact contact = previous.get(0);
+			contactStatsService.recordMoved(contact.getTimestamp(), contact.getReason(), changes.getReason());
+		}
+	}
+
+	/**
+	 * Deletes a contact by its unique identifier with a single {@code DELETE}
+	 * statement, using the number of rows affected to know whether it existed. If
+	 * an expected version is given, the contact is only deleted when its current
+	 * version is that one.
+	 *
+	 * @param id              The unique identifier of the contact to be deleted.
+	 * @param expectedVersion The version the contact must have, or {@code null} to
+	 *                        delete it whatever its version is.
+	 * @throws ContactNotFound If the contact with the specified ID is not found.
+	 * @throws VersionMismatch If the contact doesn't have the expected version.
+	 */
+	@Transactional
+	@CacheEvict(cacheNames = { "contacts", "contact-responses" }, key = "#id")
+	public void deleteContact(Long id, Long expectedVersion) throws ContactNotFound, VersionMismatch {
+		List<Contact> deleted = contactRepository.deleteReturningById(id, expectedVersion);
+		if (deleted.isEmpty()) {
+			if (expectedVersion != null && contactRepository.existsById(id)) {
+				throw new VersionMismatch();
+			}
+			throw new ContactNotFound();
+		}
+		contactStatsService.recordDeleted(deleted);
+	}
+
+	/**
+	 * Deletes the contacts with the given IDs. The IDs are deleted in chunks, with
+	 * one {@code DELETE} statement and transaction per chunk. IDs that don't exist
+	 * are ignored.
+	 *
+	 * @param ids The unique identifiers of the contacts to be deleted.
+	 * @return The number of contacts deleted.
+	 */
+	@CacheEvict(cacheNames = { "contacts", "contact-responses" }, allEntries = true)
+	public long deleteContacts(List<Long> ids) {
+		long deleted = 0;
+		for (int from = 0; from < ids.size(); from += deleteChunkSize) {
+			List<Contact> chunk = contactRepository
+					.deleteReturningByIdIn(ids.subList(from, Math.min(from + deleteChunkSize, ids.size())));
+			contactStatsService.recordDeleted(chunk);
+			deleted += chunk.size();
+		}
+		return deleted;
 	}
 
 	/**
-	 * Deletes a contact by its unique identifier.
+	 * Deletes all the contacts created before the given time. The contacts are
+	 * deleted in chunks, with one {@code DELETE} statement and transaction per
+	 * chunk, until there aren't any left.
 	 *
-	 * @param id The unique identifier of the contact to be deleted.
-	 * @throws UserNotFound If the contact with the specified ID is not found.
+	 * @param before The time before which the contacts are deleted (exclusive).
+	 * @return The number of contacts deleted.
 	 */
-	public void deleteContact(Long id) throws ContactNotFound {
-		contactRepository.findById(id).orElseThrow(() -> new ContactNotFound());
-		contactRepository.deleteById(id);
+	@CacheEvict(cacheNames = { "contacts", "contact-responses" }, allEntries = true)
+	public long deleteContactsCreatedBefore(Timestamp before) {
+		long deleted = 0;
+		List<Contact> chunk;
+		do {
+			chunk = contactRepository.deleteReturningChunkCreatedBefore(before, deleteChunkSize);
+			contactStatsService.recordDeleted(chunk);
+			deleted += chunk.size();
+		} while (chunk.size() == deleteChunkSize);
+		return deleted;
 	}
 }
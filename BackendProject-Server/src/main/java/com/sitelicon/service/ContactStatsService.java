@@ -0,0 +1,278 @@
+package com.sitelicon.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.sitelicon.dto.ContactStats;
+import com.sitelicon.exceptions.InvalidStatsRange;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.model.StatsBucket;
+
+/**
+ * Service class that keeps the number of contacts created per minute, hour and
+ * day, by reason.
+ * <p>
+ * The counters are updated in memory when contacts are created, moved to
+ * another reason or deleted, once the transaction that did it has committed.
+ * Every {@code contacts.stats.flush-interval} milliseconds the changes are added
+ * to the {@code contact_stats} rollup table, which has one row per bucket and
+ * reason. The statistics of a time range are read from the rollup table plus
+ * the changes not saved yet, so their cost depends on the number of buckets of
+ * the range and not on the number of contacts.
+ * <p>
+ * When the rollup table is created on a database that already has contacts, it
+ * is filled from them before the application accepts requests.
+ *
+ * @see {@link ContactStats}
+ * @see {@link StatsBucket}
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class ContactStatsService {
+
+	private static final String UPSERT = "INSERT INTO contact_stats (bucket, bucket_start, reason, count)"
+			+ " VALUES (?, ?, ?, ?) ON CONFLICT (bucket, bucket_start, reason)"
+			+ " DO UPDATE SET count = count + excluded.count";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Maximum number of buckets of the statistics of a time range.
+	 */
+	@Value("${contacts.stats.max-buckets}")
+	private int maxBuckets;
+
+	/**
+	 * Changes of the counters not saved yet to the rollup table.
+	 */
+	private final Map<Key, Long> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Lock that keeps the statistics from being read while the changes are being
+	 * saved, when they could be counted twice.
+	 */
+	private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates the rollup table if it doesn't exist yet, and fills it from the
+	 * contacts already stored. It runs once the schema of the contact table is up
+	 * to date and before the application accepts requests, so no contact is
+	 * written while the existing ones are being counted.
+	 */
+	@PostConstruct
+	void createRollup() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Integer existing = jdbcTemplate.queryForObject(
+					"SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name = 'contact_stats'", Integer.class);
+			if (existing > 0) {
+				return;
+			}
+			jdbcTemplate.execute("CREATE TABLE contact_stats (bucket VARCHAR(8) NOT NULL,"
+					+ " bucket_start INTEGER NOT NULL, reason INTEGER NOT NULL, count INTEGER NOT NULL,"
+					+ " PRIMARY KEY (bucket, bucket_start, reason)) WITHOUT ROWID");
+			for (StatsBucket bucket : StatsBucket.values()) {
+				jdbcTemplate.update("INSERT INTO contact_stats (bucket, bucket_start, reason, count)"
+						+ " SELECT ?, (timestamp / ?) * ?, reason, count(*) FROM contact"
+						+ " WHERE timestamp IS NOT NULL AND reason IS NOT NULL GROUP BY 2, 3", bucket.name(),
+						bucket.getMillis(), bucket.getMillis());
+			}
+		});
+	}
+
+	/**
+	 * Counts the given contacts as created.
+	 *
+	 * @param contacts The contacts created, with their reason and creation time.
+	 */
+	public void recordCreated(Collection<Contact> contacts) {
+		record(contacts, 1);
+	}
+
+	/**
+	 * Counts the given contacts as deleted.
+	 *
+	 * @param contacts The contacts deleted, with their reason and creation time.
+	 */
+	public void recordDeleted(Collection<Contact> contacts) {
+		record(contacts, -1);
+	}
+
+	/**
+	 * Counts a contact as moved from one reason to another.
+	 *
+	 * @param timestamp The creation time of the contact.
+	 * @param from      The previous reason of the contact.
+	 * @param to        The new reason of the contact.
+	 */
+	public void recordMoved(Timestamp timestamp, Reason from, Reason to) {
+		if (from == to) {
+			return;
+		}
+		afterCommit(() -> {
+			add(from, timestamp, -1);
+			add(to, timestamp, 1);
+		});
+	}
+
+	/**
+	 * Retrieves the number of contacts created in every bucket of a time range, by
+	 * reason. The buckets without contacts are left out.
+	 *
+	 * @param bucket The size of the buckets.
+	 * @param from   The time from which the contacts are counted (inclusive). It is
+	 *               moved to the start of its bucket.
+	 * @param to     The time until which the contacts are counted (exclusive).
+	 * @return List of buckets ordered by time.
+	 * @throws InvalidStatsRange If the range is empty or spans more buckets than
+	 *                           the configured maximum.
+	 */
+	@Transactional(readOnly = true)
+	public List<ContactStats> getStats(StatsBucket bucket, Instant from, Instant to) throws InvalidStatsRange {
+		long start = bucket.startOf(from.toEpochMilli());
+		long end = to.toEpochMilli();
+		if (end <= start || (end - start - 1) / bucket.getMillis() >= maxBuckets) {
+			throw new InvalidStatsRange();
+		}
+
+		Map<Long, Map<Reason, Long>> buckets = new TreeMap<>();
+		flushLock.readLock().lock();
+		try {
+			jdbcTemplate.query("SELECT bucket_start, reason, count FROM contact_stats"
+					+ " WHERE bucket = ? AND bucket_start >= ? AND bucket_start < ?", rs -> {
+						addTo(buckets, rs.getLong("bucket_start"), Reason.values()[rs.getInt("reason")],
+								rs.getLong("count"));
+					}, bucket.name(), start, end);
+			pending.forEach((key, count) -> {
+				if (key.bucket() == bucket && key.start() >= start && key.start() < end) {
+					addTo(buckets, key.start(), key.reason(), count);
+				}
+			});
+		} finally {
+			flushLock.readLock().unlock();
+		}
+
+		List<ContactStats> stats = new ArrayList<>();
+		buckets.forEach((bucketStart, counts) -> {
+			if (counts.values().stream().anyMatch(count -> count != 0)) {
+				stats.add(new ContactStats(new Timestamp(bucketStart), counts));
+			}
+		});
+		return stats;
+	}
+
+	/**
+	 * Adds the changes of the counters to the rollup table, in a single
+	 * transaction, and removes them from memory once committed. It also runs when
+	 * the application shuts down, after the contacts have stopped being written.
+	 */
+	@Scheduled(fixedDelayString = "${contacts.stats.flush-interval}")
+	@PreDestroy
+	public void flush() {
+		if (pending.isEmpty()) {
+			return;
+		}
+		flushLock.writeLock().lock();
+		try {
+			Map<Key, Long> changes = Map.copyOf(pending);
+			new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+				jdbcTemplate.batchUpdate(UPSERT, changes.entrySet(), changes.size(), (ps, change) -> {
+					ps.setString(1, change.getKey().bucket().name());
+					ps.setLong(2, change.getKey().start());
+					ps.setInt(3, change.getKey().reason().ordinal());
+					ps.setLong(4, change.getValue());
+				});
+			});
+			changes.forEach((key, count) -> pending.merge(key, -count, this::sum));
+		} finally {
+			flushLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a change of the counters to all the buckets of the given contacts.
+	 * Contacts without reason or creation time aren't counted.
+	 */
+	private void record(Collection<Contact> contacts, long delta) {
+		afterCommit(() -> contacts.forEach(contact -> add(contact.getReason(), contact.getTimestamp(), delta)));
+	}
+
+	/**
+	 * Runs an action after the current transaction commits, or right away if
+	 * there isn't one, so the counters never include changes rolled back.
+	 */
+	private void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	private void add(Reason reason, Timestamp timestamp, long delta) {
+		if (reason == null || timestamp == null) {
+			return;
+		}
+		for (StatsBucket bucket : StatsBucket.values()) {
+			pending.merge(new Key(bucket, bucket.startOf(timestamp.getTime()), reason), delta, this::sum);
+		}
+	}
+
+	/**
+	 * Adds two changes of a counter, removing the counter when they cancel out.
+	 */
+	private Long sum(Long a, Long b) {
+		long sum = a + b;
+		return sum == 0 ? null : sum;
+	}
+
+	private static void addTo(Map<Long, Map<Reason, Long>> buckets, long start, Reason reason, long count) {
+		buckets.computeIfAbsent(start, s -> {
+			Map<Reason, Long> counts = new EnumMap<>(Reason.class);
+			for (Reason r : Reason.values()) {
+				counts.put(r, 0L);
+			}
+			return counts;
+		}).merge(reason, count, Long::sum);
+	}
+
+	/**
+	 * Identifies a counter: the size and start of its bucket and the reason it
+	 * counts.
+	 */
+	private record Key(StatsBucket bucket, long start, Reason reason) {
+	}
+}
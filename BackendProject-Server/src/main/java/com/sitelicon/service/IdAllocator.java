@@ -0,0 +1,127 @@
+package com.sitelicon.service;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Service class that hands out the IDs of the new users and contacts.
+ * <p>
+ * The IDs are reserved in blocks of {@code ids.block-size} from the
+ * {@code id_generator} table, which keeps the next free ID of every table, and
+ * handed out from memory until the block runs out. Every block is reserved
+ * with a single statement committed on its own, before the transaction that
+ * inserts the rows is opened, so a request never needs a second connection
+ * while it holds one, and the IDs of a transaction rolled back are never handed
+ * out again. The inserts can still be sent to the database in JDBC batches, as
+ * the IDs are known beforehand.
+ * <p>
+ * The reservation never goes below the highest ID of the table, so the IDs
+ * don't collide with rows written before the table existed or by another
+ * generator.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class IdAllocator {
+
+	/**
+	 * Name of the IDs of the users, the same as their table.
+	 */
+	public static final String USER = "user";
+
+	/**
+	 * Name of the IDs of the contacts, the same as their table.
+	 */
+	public static final String CONTACT = "contact";
+
+	private static final String RESERVE = "UPDATE id_generator SET next_id = max(coalesce(next_id, 1),"
+			+ " (SELECT coalesce(max(id), 0) + 1 FROM %s)) + ? WHERE entity = ? RETURNING next_id";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Number of IDs reserved at once.
+	 */
+	@Value("${ids.block-size}")
+	private int blockSize;
+
+	private final Map<String, Block> blocks = Map.of(USER, new Block(), CONTACT, new Block());
+
+	/**
+	 * Creates the {@code id_generator} table and its rows if they don't exist yet.
+	 */
+	@PostConstruct
+	void createTable() {
+		jdbcTemplate.execute(
+				"CREATE TABLE IF NOT EXISTS id_generator (entity VARCHAR(255) NOT NULL PRIMARY KEY, next_id BIGINT)");
+		for (String name : blocks.keySet()) {
+			jdbcTemplate.update("INSERT OR IGNORE INTO id_generator (entity, next_id) VALUES (?, 1)", name);
+		}
+	}
+
+	/**
+	 * Gets a new ID.
+	 *
+	 * @param name The name of the IDs: {@link #USER} or {@link #CONTACT}.
+	 * @return The ID, never handed out before.
+	 * @throws IllegalStateException If called inside a transaction.
+	 */
+	public long next(String name) {
+		return next(name, 1)[0];
+	}
+
+	/**
+	 * Gets several new IDs, reserving as many as needed at once when the current
+	 * block doesn't have enough. It must be called before opening the transaction
+	 * that inserts the rows.
+	 *
+	 * @param name  The name of the IDs: {@link #USER} or {@link #CONTACT}.
+	 * @param count The number of IDs.
+	 * @return The IDs in increasing order, never handed out before.
+	 * @throws IllegalStateException If called inside a transaction.
+	 */
+	public long[] next(String name, int count) {
+		if (TransactionSynchronizationManager.isActualTransactionActive()) {
+			throw new IllegalStateException("IDs must be reserved before opening the transaction that uses them");
+		}
+		Block block = blocks.get(name);
+		if (block == null) {
+			throw new IllegalArgumentException("Unknown IDs: " + name);
+		}
+
+		long[] ids = new long[count];
+		block.lock.lock();
+		try {
+			for (int i = 0; i < count; i++) {
+				if (block.next == block.end) {
+					int size = Math.max(blockSize, count - i);
+					block.end = jdbcTemplate.queryForObject(String.format(RESERVE, name), Long.class, size, name);
+					block.next = block.end - size;
+				}
+				ids[i] = block.next++;
+			}
+		} finally {
+			block.lock.unlock();
+		}
+		return ids;
+	}
+
+	/**
+	 * IDs reserved and not handed out yet, from {@code next} (inclusive) to
+	 * {@code end} (exclusive).
+	 */
+	private static final class Block {
+		private final ReentrantLock lock = new ReentrantLock();
+		private long next;
+		private long end;
+	}
+}
@@ -1,12 +1,34 @@
 package com.sitelicon.service;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.dto.ListView;
+import com.sitelicon.dto.UserDetails;
+import com.sitelicon.dto.UserSummary;
 import com.sitelicon.exceptions.UserNotFound;
+import com.sitelicon.exceptions.VersionMismatch;
 import com.sitelicon.model.User;
 import com.sitelicon.repository.UserRepository;
 
@@ -21,58 +43,210 @@ public class UserService {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private IdAllocator idAllocator;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Default number of users of a page when the client doesn't ask for a size.
+	 */
+	@Value("${api.pagination.default-limit}")
+	private int defaultPageSize;
+
+	/**
+	 * Maximum number of users of a page, no matter the size asked by the
+	 * client.
+	 */
+	@Value("${api.pagination.max-limit}")
+	private int maxPageSize;
+
 	/**
-	 * Retrieves a list of all users.
+	 * Retrieves a page of users ordered by ID, starting after the given cursor.
+	 * The size of the page is capped to the configured maximum. The users are read
+	 * as the projection of the given view, so only its columns are selected.
 	 *
-	 * @return List of users.
+	 * @param after The ID after which the page starts, or {@code null} to start
+	 *              from the beginning.
+	 * @param limit The requested size of the page, or {@code null} to use the
+	 *              default one.
+	 * @param view  The view of the users: {@link UserSummary} for the summary one
+	 *              and {@link UserDetails} for the full one.
+	 * @return Page of users with the cursor of the next page.
 	 */
-	public List<User> getAllUsers() {
-		return userRepository.findAll();
+	@Transactional(readOnly = true)
+	public CursorPage<? extends UserSummary> getUsersPage(Long after, Integer limit, ListView view) {
+		int pageSize = limit == null || limit < 1 ? defaultPageSize : Math.min(limit, maxPageSize);
+		Class<? extends UserSummary> type = view == ListView.SUMMARY ? UserSummary.class : UserDetails.class;
+		List<? extends UserSummary> users = userRepository.findByIdGreaterThanOrderByIdAsc(
+				after == null ? 0L : after, Limit.of(pageSize + 1), type);
+		return CursorPage.of(users, pageSize, UserSummary::getId);
 	}
 
 	/**
-	 * Retrieves a user by their unique identifier.
+	 * Reads all the users ordered by ID and hands them one by one to the given
+	 * action as they are read. The users are read as the {@link UserDetails}
+	 * projection, so their passwords aren't read and no entities are kept in the
+	 * persistence context.
+	 *
+	 * @param action The action that processes every user.
+	 */
+	@Transactional(readOnly = true)
+	public void exportUsers(Consumer<UserDetails> action) {
+		try (Stream<UserDetails> users = userRepository.streamAll()) {
+			users.forEach(action);
+		}
+	}
+
+	/**
+	 * Retrieves a user by their unique identifier. The user is kept in the
+	 * {@code users} cache, so later lookups don't reach the database until it
+	 * is updated, deleted or expired.
 	 *
 	 * @param id The unique identifier of the user.
 	 * @return User object if found.
 	 * @throws UserNotFound If the user with the specified ID is not found.
 	 */
+	@Transactional(readOnly = true)
+	@Cacheable(cacheNames = "users", key = "#id")
 	public User getUserById(Long id) throws UserNotFound {
 		return userRepository.findById(id).orElseThrow(() -> new UserNotFound());
 	}
 
 	/**
-	 * Creates a new user.
+	 * Creates a new user. Any ID present in the given user is replaced by a new
+	 * one, so it is always inserted.
 	 *
 	 * @param user The user object to be created.
 	 */
 	public void createUser(User user) {
+		user.setId(idAllocator.next(IdAllocator.USER));
+		user.setVersion(null);
 		userRepository.save(user);
 	}
 
 	/**
-	 * Updates an existing user. Updates all the fields except ID and Timestamp
+	 * Creates several users in a single transaction. The IDs are reserved before
+	 * the transaction is opened and the inserts are sent to the database in JDBC
+	 * batches. Any ID present in the given users is replaced by a new one, so they
+	 * are always inserted.
 	 *
-	 * @param id          The unique identifier of the user to be updated.
-	 * @param updatedUser The updated user object.
-	 * @throws UserNotFound If the user with the specified ID is not found.
+	 * @param users The user objects to be created.
+	 * @return List with the IDs generated, in the same order as the users.
+	 */
+	public List<Long> createUsers(List<User> users) {
+		long[] ids = idAllocator.next(IdAllocator.USER, users.size());
+		for (int i = 0; i < ids.length; i++) {
+			users.get(i).setId(ids[i]);
+			users.get(i).setVersion(null);
+		}
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> userRepository.saveAll(users));
+		return Arrays.stream(ids).boxed().toList();
+	}
+
+	/**
+	 * Updates an existing user. Updates all the fields except ID, Timestamp and
+	 * Version. If an expected version is given, the user is only updated when
+	 * its current version is that one.
+	 *
+	 * @param id              The unique identifier of the user to be updated.
+	 * @param updatedUser     The updated user object.
+	 * @param expectedVersion The version the user must have, or {@code null} to
+	 *                        update it whatever its version is.
+	 * @return The updated user, with its new version.
+	 * @throws UserNotFound    If the user with the specified ID is not found.
+	 * @throws VersionMismatch If the user doesn't have the expected version.
 	 */
-	public void updateUser(Long id, User updatedUser) throws UserNotFound {
+	@Transactional
+	@CacheEvict(cacheNames = { "users", "user-responses" }, key = "#id")
+	public User updateUser(Long id, User updatedUser, Long expectedVersion) throws UserNotFound, VersionMismatch {
 		User userToUpdate = userRepository.findById(id).orElseThrow(() -> new UserNotFound());
+		if (expectedVersion != null && !expectedVersion.equals(userToUpdate.getVersion())) {
+			throw new VersionMismatch();
+		}
 
-		BeanUtils.copyProperties(updatedUser, userToUpdate, "id", "timestamp");
-		userRepository.save(userToUpdate);
+		BeanUtils.copyProperties(updatedUser, userToUpdate, "id", "timestamp", "version");
+		return userRepository.saveAndFlush(userToUpdate);
+	}
 
+	/**
+	 * Partially updates an existing user with a single {@code UPDATE}
+	 * statement, without reading it first. Only the fields present in the changes
+	 * are written, and the version is incremented. If an expected version is
+	 * given, the user is only updated when its current version is that one.
+	 *
+	 * @param id              The unique identifier of the user to be updated.
+	 * @param changes         The user object with the fields to change, the
+	 *                        {@code null} ones are left as they are.
+	 * @param expectedVersion The version the user must have, or {@code null} to
+	 *                        update it whatever its version is.
+	 * @throws UserNotFound    If the user with the specified ID is not found.
+	 * @throws VersionMismatch If the user doesn't have the expected version.
+	 */
+	@Transactional
+	@CacheEvict(cacheNames = { "users", "user-responses" }, key = "#id")
+	public void patchUser(Long id, User changes, Long expectedVersion) throws UserNotFound, VersionMismatch {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+		Root<User> root = update.from(User.class);
+
+		if (changes.getName() != null) {
+			update.set("name", changes.getName());
+		}
+		if (changes.getLastName() != null) {
+			update.set("lastName", changes.getLastName());
+		}
+		if (changes.getPhoneNumber() != null) {
+			update.set("phoneNumber", changes.getPhoneNumber());
+		}
+		if (changes.getEmail() != null) {
+			update.set("email", changes.getEmail());
+		}
+		if (changes.getPassword() != null) {
+			update.set("password", changes.getPassword());
+		}
+		update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+
+		Predicate condition = cb.equal(root.get("id"), id);
+		if (expectedVersion != null) {
+			condition = cb.and(condition, cb.equal(root.get("version"), expectedVersion));
+		}
+		update.where(condition);
+
+		if (entityManager.createQuery(update).executeUpdate() == 0) {
+			if (expectedVersion != null && userRepository.existsById(id)) {
+				throw new VersionMismatch();
+			}
+			throw new UserNotFound();
+		}
 	}
 
 	/**
-	 * Deletes a user by their unique identifier.
+	 * Deletes a user by their unique identifier with a single {@code DELETE}
+	 * statement, using the number of rows affected to know whether it existed. If
+	 * an expected version is given, the user is only deleted when its current
+	 * version is that one.
 	 *
-	 * @param id The unique identifier of the user to be deleted.
-	 * @throws UserNotFound If the user with the specified ID is not found.
+	 * @param id              The unique identifier of the user to be deleted.
+	 * @param expectedVersion The version the user must have, or {@code null} to
+	 *                        delete it whatever its version is.
+	 * @throws UserNotFound    If the user with the specified ID is not found.
+	 * @throws VersionMismatch If the user doesn't have the expected version.
 	 */
-	public void deleteUser(Long id) throws UserNotFound {
-		userRepository.findById(id).orElseThrow(() -> new UserNotFound());
-		userRepository.deleteById(id);
+	@Transactional
+	@CacheEvict(cacheNames = { "users", "user-responses" }, key = "#id")
+	public void deleteUser(Long id, Long expectedVersion) throws UserNotFound, VersionMismatch {
+		int deleted = expectedVersion == null ? userRepository.deleteDirectlyById(id)
+				: userRepository.deleteDirectlyByIdAndVersion(id, expectedVersion);
+		if (deleted == 0) {
+			if (expectedVersion != null && userRepository.existsById(id)) {
+				throw new VersionMismatch();
+			}
+			throw new UserNotFound();
+		}
 	}
 }
\ No newline at end of file
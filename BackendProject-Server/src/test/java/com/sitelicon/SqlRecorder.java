@@ -0,0 +1,49 @@
+package com.sitelicon;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records the SQL statements prepared by Hibernate, so a test can check the
+ * queries sent to the database.
+ * <p>
+ * It is installed as the statement inspector of the session factory by adding
+ * {@link #PROPERTY} to the properties of the {@code @SpringBootTest}. The
+ * statements are kept in a single list shared by every context, so a test
+ * should {@link #clear()} it before running the code it checks.
+ */
+public class SqlRecorder implements StatementInspector {
+
+	/**
+	 * Property of the test context that installs the recorder.
+	 */
+	public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+			+ "com.sitelicon.SqlRecorder";
+
+	private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+	@Override
+	public String inspect(String sql) {
+		statements.add(sql);
+		return sql;
+	}
+
+	/**
+	 * The statements recorded since the last {@link #clear()}, in the order they
+	 * were prepared.
+	 *
+	 * @return The statements recorded.
+	 */
+	public static List<String> statements() {
+		return statements;
+	}
+
+	/**
+	 * Forgets the statements recorded so far.
+	 */
+	public static void clear() {
+		statements.clear();
+	}
+}
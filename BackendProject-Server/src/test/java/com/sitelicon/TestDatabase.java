@@ -0,0 +1,38 @@
+package com.sitelicon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+/**
+ * Points the data source of a test class at a new temporary database, so every
+ * class starts from an empty database, whatever the previous runs left, and the
+ * database shipped in {@code src/main/resources} is never written by the tests.
+ * <p>
+ * It is meant to be called from a {@code @DynamicPropertySource} method. The
+ * database file is deleted when the JVM exits.
+ */
+public final class TestDatabase {
+
+	private TestDatabase() {
+	}
+
+	/**
+	 * Creates a temporary database file and registers its URL as the data source
+	 * of the test.
+	 *
+	 * @param registry The registry of the properties of the test context.
+	 */
+	public static void register(DynamicPropertyRegistry registry) {
+		try {
+			Path file = Files.createTempFile("backend-test-", ".db");
+			file.toFile().deleteOnExit();
+			registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
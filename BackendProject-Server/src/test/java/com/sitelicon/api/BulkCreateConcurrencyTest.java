@@ -0,0 +1,90 @@
+package com.sitelicon.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sitelicon.TestDatabase;
+
+/**
+ * Sends bulk creations of users and contacts at the same time with a small pool
+ * of connections, so more requests than connections are inside their
+ * transactions at once. Every request must get its IDs without needing a
+ * second connection, and no ID can be given twice.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.hikari.maximum-pool-size=2", "spring.datasource.hikari.connection-timeout=5000" })
+class BulkCreateConcurrencyTest {
+
+	private static final int REQUESTS = 12;
+	private static final int ROWS = 120;
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) {
+		TestDatabase.register(registry);
+	}
+
+	@Test
+	void concurrentBulkContactsGetUniqueIds() throws Exception {
+		assertUniqueIds("/api/contacts/bulk",
+				"{\"name\":\"Bulk\",\"email\":\"bulk@example.com\",\"reason\":\"QUESTION\",\"message\":\"Hello\"}");
+	}
+
+	@Test
+	void concurrentBulkUsersGetUniqueIds() throws Exception {
+		assertUniqueIds("/api/users/bulk", "{\"name\":\"Bulk\",\"lastName\":\"User\",\"phoneNumber\":\"600000000\","
+				+ "\"email\":\"bulk@example.com\",\"password\":\"secret\"}");
+	}
+
+	/**
+	 * Sends the bulk creations at the same time and checks that all of them
+	 * succeed and that every row created got a different ID.
+	 *
+	 * @param path The path of the bulk endpoint.
+	 * @param row  The JSON of every row sent.
+	 */
+	private void assertUniqueIds(String path, String row) throws Exception {
+		String body = "[" + String.join(",", Collections.nCopies(ROWS, row)) + "]";
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(body)).build();
+
+		List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+		try (HttpClient http = HttpClient.newHttpClient();
+				ExecutorService executor = Executors.newFixedThreadPool(REQUESTS)) {
+			for (int i = 0; i < REQUESTS; i++) {
+				responses.add(executor.submit(() -> http.send(request, HttpResponse.BodyHandlers.ofString())));
+			}
+
+			Set<Long> ids = new HashSet<>();
+			for (Future<HttpResponse<String>> future : responses) {
+				HttpResponse<String> response = future.get();
+				assertEquals(201, response.statusCode(), response.body());
+				for (String id : response.body().replaceAll("[\\[\\]]", "").split(",")) {
+					ids.add(Long.parseLong(id));
+				}
+			}
+			assertEquals(REQUESTS * ROWS, ids.size());
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.sitelicon.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.sitelicon.BackendProjectServerApplication;
+import com.sitelicon.dto.ListView;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.service.ContactService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Measures the read throughput of the contact listing while a writer keeps
+ * creating contacts, with the data source of the default profile and with the
+ * one of the {@code sqlite-perf} profile: its pragmas, a writer pool of one
+ * connection and a reader pool behind the routing data source.
+ * <p>
+ * Every run starts the application on a new database and goes through
+ * {@link ContactService}, so the reads run in read-only transactions and the
+ * writes in read-write ones, as they do when serving requests. The connections
+ * taken from every pool are counted from the metrics of Hikari, which shows
+ * where the reads were routed.
+ * <p>
+ * It isn't part of the regular test run. Run it with
+ * {@code mvn test -Pbenchmark}. The duration and the number of readers can be
+ * changed with the {@code benchmark.seconds} and {@code benchmark.readers}
+ * system properties.
+ */
+@Tag("benchmark")
+class SqliteReadWriteBenchmarkTest {
+
+	private static final Logger log = LoggerFactory.getLogger(SqliteReadWriteBenchmarkTest.class);
+
+	private static final int ROWS = 10_000;
+
+	private final int seconds = Integer.getInteger("benchmark.seconds", 10);
+	private final int readers = Integer.getInteger("benchmark.readers", 4);
+
+	@Test
+	void readThroughputWhileWriting() throws Exception {
+		Result before = run("default");
+		Result after = run("sqlite-perf");
+
+		log.info("{}", before);
+		log.info("{}", after);
+		assertTrue(before.reads > 0 && after.reads > 0);
+		assertEquals(0, before.errors + after.errors);
+		// Every read takes a connection from the reader pool, and only the reads do
+		assertEquals(after.reads, after.connections.get("sqlite-reader"));
+	}
+
+	/**
+	 * Starts the application with a profile on a new database, fills it and runs
+	 * the readers and the writer against it for the configured time.
+	 *
+	 * @param profile The profile of the application, also the name of the run.
+	 * @return The operations completed and the connections taken from every pool
+	 *         while they ran.
+	 */
+	private Result run(String profile) throws Exception {
+		Path file = Files.createTempFile("sqlite-benchmark-", ".db");
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				BackendProjectServerApplication.class).web(WebApplicationType.NONE).run(
+						"--spring.profiles.active=" + profile, "--spring.datasource.url=jdbc:sqlite:" + file)) {
+			ContactService contactService = context.getBean(ContactService.class);
+			List<Contact> contacts = new ArrayList<>();
+			for (int i = 0; i < ROWS; i++) {
+				contacts.add(new Contact("Reader " + i, "user" + i + "@example.com", Reason.QUESTION,
+						"Message number " + i));
+			}
+			contactService.createContacts(contacts);
+
+			MeterRegistry registry = context.getBean(MeterRegistry.class);
+			Map<String, Long> before = connections(registry);
+			AtomicBoolean running = new AtomicBoolean(true);
+			LongAdder reads = new LongAdder();
+			LongAdder writes = new LongAdder();
+			LongAdder errors = new LongAdder();
+			List<Thread> threads = new ArrayList<>();
+
+			threads.add(new Thread(() -> {
+				while (running.get()) {
+					try {
+						contactService.createContact(
+								new Contact("Writer", "writer@example.com", Reason.ALERT, "Written while reading"));
+						writes.increment();
+					} catch (RuntimeException e) {
+						errors.increment();
+					}
+				}
+			}));
+			for (int i = 0; i < readers; i++) {
+				threads.add(new Thread(() -> {
+					while (running.get()) {
+						try {
+							contactService.getContactsPage(ThreadLocalRandom.current().nextLong(ROWS), 20,
+									ListView.FULL);
+							reads.increment();
+						} catch (RuntimeException e) {
+							errors.increment();
+						}
+					}
+				}));
+			}
+
+			threads.forEach(Thread::start);
+			Thread.sleep(seconds * 1000L);
+			running.set(false);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			Map<String, Long> taken = connections(registry);
+			taken.replaceAll((pool, count) -> count - before.getOrDefault(pool, 0L));
+			return new Result(profile, seconds, reads.sum(), writes.sum(), errors.sum(), taken);
+		} finally {
+			Files.deleteIfExists(file);
+			Files.deleteIfExists(Path.of(file + "-wal"));
+			Files.deleteIfExists(Path.of(file + "-shm"));
+		}
+	}
+
+	/**
+	 * Counts the connections taken so far from every pool, by pool name.
+	 */
+	private Map<String, Long> connections(MeterRegistry registry) {
+		Map<String, Long> connections = new TreeMap<>();
+		for (Timer usage : registry.find("hikaricp.connections.usage").timers()) {
+			connections.merge(usage.getId().getTag("pool"), usage.count(), Long::sum);
+		}
+		return connections;
+	}
+
+	private record Result(String name, int seconds, long reads, long writes, long errors,
+			Map<String, Long> connections) {
+		@Override
+		public String toString() {
+			return String.format("%-12s reads/s=%-8d writes/s=%-8d errors=%d connections=%s", name, reads / seconds,
+					writes / seconds, errors, connections);
+		}
+	}
+}
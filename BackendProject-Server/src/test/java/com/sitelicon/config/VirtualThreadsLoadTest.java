@@ -0,0 +1,156 @@
+package com.sitelicon.config;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.sitelicon.BackendProjectServerApplication;
+
+/**
+ * Compares the throughput and the latency of the server with Tomcat running on
+ * platform threads and on virtual threads, under a slow disk simulated by
+ * delaying every statement sent by Hibernate. Both runs use the same pool of
+ * JDBC connections, so the difference comes only from the threads.
+ * <p>
+ * The clients mix lookups of contacts by ID, which are served from the cache
+ * after the first one, with listings, which always reach the database. With
+ * platform threads, the listings waiting for a connection hold the Tomcat
+ * workers and the cached lookups wait behind them.
+ * <p>
+ * It isn't part of the regular test run. Run it with
+ * {@code mvn test -Pbenchmark}. The duration, the number of clients and the
+ * delay of every statement can be changed with the {@code benchmark.seconds},
+ * {@code benchmark.clients} and {@code benchmark.delay-millis} system
+ * properties.
+ */
+@Tag("benchmark")
+class VirtualThreadsLoadTest {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadsLoadTest.class);
+
+	private static final int CONTACTS = 1_000;
+
+	private final int seconds = Integer.getInteger("benchmark.seconds", 10);
+	private final int clients = Integer.getInteger("benchmark.clients", 400);
+
+	@Test
+	void throughputAndLatencyAgainstPlatformThreads() throws Exception {
+		Result platform = run("platform", false);
+		Result virtual = run("virtual", true);
+
+		log.info("{}", platform);
+		log.info("{}", virtual);
+		assertTrue(platform.requests > 0 && virtual.requests > 0);
+	}
+
+	/**
+	 * Starts the server on a new database, fills it and runs the clients against
+	 * it for the configured time.
+	 *
+	 * @param name    Name of the run, used in the result.
+	 * @param virtual Whether Tomcat runs on virtual threads.
+	 * @return The requests completed and their latencies.
+	 */
+	private Result run(String name, boolean virtual) throws Exception {
+		Path file = Files.createTempFile("load-test-", ".db");
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+				BackendProjectServerApplication.class).run("--server.port=0",
+						"--spring.datasource.url=jdbc:sqlite:" + file, "--spring.threads.virtual.enabled=" + virtual,
+						"--spring.datasource.hikari.maximum-pool-size=4",
+						"--spring.datasource.hikari.connection-timeout=60000",
+						"--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+								+ SlowDisk.class.getName());
+				HttpClient http = HttpClient.newHttpClient();
+				ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/contacts";
+			StringBuilder contacts = new StringBuilder("[");
+			for (int i = 0; i < CONTACTS; i++) {
+				contacts.append(i == 0 ? "" : ",").append("{\"name\":\"Load ").append(i)
+						.append("\",\"email\":\"load@example.com\",\"reason\":\"QUESTION\",\"message\":\"Load test\"}");
+			}
+			HttpResponse<String> created = http.send(HttpRequest.newBuilder(URI.create(url + "/bulk"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(contacts.append("]").toString())).build(),
+					HttpResponse.BodyHandlers.ofString());
+			long[] ids = Arrays.stream(created.body().replaceAll("[\\[\\]]", "").split(","))
+					.mapToLong(Long::parseLong).toArray();
+
+			long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+			List<Future<long[]>> futures = new ArrayList<>();
+			for (int i = 0; i < clients; i++) {
+				futures.add(executor.submit(() -> {
+					List<Long> latencies = new ArrayList<>();
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					while (System.nanoTime() < deadline) {
+						long id = ids[random.nextInt(ids.length)];
+						URI uri = URI.create(random.nextBoolean() ? url + "/" + id : url + "?after=" + id + "&limit=20");
+						long start = System.nanoTime();
+						http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+						latencies.add(System.nanoTime() - start);
+					}
+					return latencies.stream().mapToLong(Long::longValue).toArray();
+				}));
+			}
+
+			List<long[]> results = new ArrayList<>();
+			for (Future<long[]> future : futures) {
+				results.add(future.get());
+			}
+			long[] latencies = results.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+			return new Result(name, latencies.length / seconds, percentile(latencies, 0.50),
+					percentile(latencies, 0.99));
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private double percentile(long[] sorted, double percentile) {
+		return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+	}
+
+	/**
+	 * Simulates a slow disk by delaying every statement sent by Hibernate while it
+	 * holds the connection.
+	 */
+	public static class SlowDisk implements StatementInspector {
+
+		private static final long DELAY = Long.getLong("benchmark.delay-millis", 20);
+
+		@Override
+		public String inspect(String sql) {
+			try {
+				Thread.sleep(DELAY);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return sql;
+		}
+	}
+
+	private record Result(String name, long requests, double p50, double p99) {
+		@Override
+		public String toString() {
+			return String.format("%-10s requests/s=%-8d p50=%.1fms p99=%.1fms", name, requests, p50, p99);
+		}
+	}
+}
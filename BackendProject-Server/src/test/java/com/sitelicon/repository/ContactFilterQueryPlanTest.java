@@ -0,0 +1,77 @@
+package com.sitelicon.repository;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sitelicon.SqlRecorder;
+import com.sitelicon.TestDatabase;
+import com.sitelicon.dto.ContactDetails;
+import com.sitelicon.model.Reason;
+
+/**
+ * Checks with {@code EXPLAIN QUERY PLAN} that the filter queries of
+ * {@link ContactFilterRepository} are resolved through the indexes of the
+ * contact table instead of scanning it.
+ */
+@SpringBootTest(properties = SqlRecorder.PROPERTY)
+class ContactFilterQueryPlanTest {
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) {
+		TestDatabase.register(registry);
+	}
+
+	@Autowired
+	private ContactRepository contactRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void clearRecordedSql() {
+		SqlRecorder.clear();
+	}
+
+	@Test
+	void reasonAndTimeRangeUseReasonTimestampIndex() {
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		contactRepository.findFiltered(Reason.ALERT, null, new Timestamp(now.getTime() - 3_600_000), now, 0L, 10,
+				ContactDetails.class);
+
+		String plan = explainLastQuery();
+		assertTrue(plan.contains("USING INDEX idx_contact_reason_timestamp"), plan);
+	}
+
+	@Test
+	void emailUsesEmailIndex() {
+		contactRepository.findFiltered(null, "someone@example.com", null, null, 0L, 10, ContactDetails.class);
+
+		String plan = explainLastQuery();
+		assertTrue(plan.contains("USING INDEX idx_contact_email"), plan);
+	}
+
+	/**
+	 * Runs {@code EXPLAIN QUERY PLAN} for the last query sent by Hibernate. The
+	 * plan doesn't depend on the values of the parameters, so every parameter is
+	 * bound to the same value.
+	 *
+	 * @return The details of the steps of the plan, one per line.
+	 */
+	private String explainLastQuery() {
+		String sql = SqlRecorder.statements().get(SqlRecorder.statements().size() - 1);
+		Object[] args = Collections.nCopies((int) sql.chars().filter(c -> c == '?').count(), 1).toArray();
+		List<String> steps = jdbcTemplate.query("EXPLAIN QUERY PLAN " + sql, (rs, i) -> rs.getString("detail"), args);
+		return String.join("\n", steps);
+	}
+}
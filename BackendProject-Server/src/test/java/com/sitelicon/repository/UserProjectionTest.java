@@ -0,0 +1,59 @@
+package com.sitelicon.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sitelicon.SqlRecorder;
+import com.sitelicon.TestDatabase;
+import com.sitelicon.dto.UserDetails;
+import com.sitelicon.dto.UserSummary;
+import com.sitelicon.model.User;
+import com.sitelicon.service.UserService;
+
+/**
+ * Checks that the projections of the user listings select only their columns,
+ * so the passwords are never read.
+ */
+@SpringBootTest(properties = SqlRecorder.PROPERTY)
+class UserProjectionTest {
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) {
+		TestDatabase.register(registry);
+	}
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserService userService;
+
+	@Test
+	void listingsNeverSelectPasswords() {
+		Long id = userService.createUsers(List.of(new User("Ana", "García", "600000000", "ana@example.com", "secret")))
+				.get(0);
+		SqlRecorder.clear();
+
+		List<UserSummary> summaries = userRepository.findByIdGreaterThanOrderByIdAsc(id - 1, Limit.of(1),
+				UserSummary.class);
+		List<UserDetails> details = userRepository.findByIdGreaterThanOrderByIdAsc(id - 1, Limit.of(1),
+				UserDetails.class);
+
+		assertEquals("ana@example.com", summaries.get(0).getEmail());
+		assertEquals("600000000", details.get(0).getPhoneNumber());
+		assertEquals(2, SqlRecorder.statements().size());
+		assertFalse(SqlRecorder.statements().get(0).contains("phone_number"), SqlRecorder.statements().get(0));
+		assertTrue(SqlRecorder.statements().stream().noneMatch(sql -> sql.contains("password")),
+				String.join("\n", SqlRecorder.statements()));
+	}
+}
@@ -0,0 +1,182 @@
+package com.sitelicon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.AopTestUtils;
+
+import com.sitelicon.TestDatabase;
+import com.sitelicon.dto.ContactSearchHit;
+import com.sitelicon.dto.CursorPage;
+import com.sitelicon.exceptions.InvalidSearchCursor;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+
+/**
+ * Checks that the full-text index of the contacts follows every write to the
+ * contact table, and that the backfill job indexes the contacts that existed
+ * before the index. The tests run on a temporary database shared by the class,
+ * so every test searches for a word of its own.
+ */
+@SpringBootTest
+class ContactSearchServiceTest {
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) {
+		TestDatabase.register(registry);
+	}
+
+	@Autowired
+	private ContactSearchService contactSearchService;
+
+	@Autowired
+	private ContactService contactService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void findsCreatedContactsWithHighlightedSnippets() throws Exception {
+		String word = uniqueWord();
+		contactService.createContacts(List.of(new Contact("Ana", "ana@example.com", Reason.QUESTION,
+				"The " + word + " printer stopped working this morning")));
+
+		List<ContactSearchHit> hits = contactSearchService.search(word.substring(0, 6), null, null).getItems();
+
+		assertEquals(1, hits.size());
+		assertTrue(hits.get(0).getMessageSnippet().contains("<mark>" + word + "</mark>"),
+				hits.get(0).getMessageSnippet());
+	}
+
+	@Test
+	void followsUpdatesAndDeletes() throws Exception {
+		String before = uniqueWord();
+		String after = uniqueWord();
+		Long id = contactService.createContacts(
+				List.of(new Contact("Bob", "bob@example.com", Reason.ALERT, "Alarm " + before))).get(0);
+
+		Contact changes = new Contact();
+		changes.setMessage("Alarm " + after);
+		contactService.patchContact(id, changes, null);
+		assertTrue(contactSearchService.search(before, null, null).getItems().isEmpty());
+		assertEquals(1, contactSearchService.search(after, null, null).getItems().size());
+
+		contactService.deleteContact(id, null);
+		assertTrue(contactSearchService.search(after, null, null).getItems().isEmpty());
+	}
+
+	@Test
+	void ranksNameMatchesFirstAndPaginates() throws Exception {
+		String word = uniqueWord();
+		contactService.createContacts(List.of(new Contact("Carol", "carol@example.com", Reason.INFORMATION, word),
+				new Contact(word, "dave@example.com", Reason.INFORMATION, "Nothing else")));
+
+		CursorPage<ContactSearchHit> first = contactSearchService.search(word, null, 1);
+		assertEquals(word, first.getItems().get(0).getName());
+		assertTrue(first.hasNext());
+
+		CursorPage<ContactSearchHit> second = contactSearchService.search(word, first.getNextCursor(), 1);
+		assertEquals("Carol", second.getItems().get(0).getName());
+		assertFalse(second.hasNext());
+	}
+
+	@Test
+	void escapesTheHtmlOfTheHighlights() throws Exception {
+		String word = uniqueWord();
+		contactService.createContacts(List.of(new Contact("<img src=x onerror=alert(1)> " + word,
+				"grace@example.com", Reason.QUESTION, "<script>" + word + "</script>")));
+
+		ContactSearchHit hit = contactSearchService.search(word, null, null).getItems().get(0);
+
+		assertEquals("&lt;img src=x onerror=alert(1)&gt; <mark>" + word + "</mark>", hit.getNameHighlight());
+		assertEquals("&lt;script&gt;<mark>" + word + "</mark>&lt;/script&gt;", hit.getMessageSnippet());
+	}
+
+	@Test
+	void paginatesEqualScoresByIdWithoutRepeats() throws Exception {
+		String word = uniqueWord();
+		List<Long> ids = contactService.createContacts(
+				List.of(new Contact("Heidi", "heidi@example.com", Reason.QUESTION, word),
+						new Contact("Heidi", "heidi@example.com", Reason.QUESTION, word),
+						new Contact("Heidi", "heidi@example.com", Reason.QUESTION, word)));
+
+		List<Long> found = new ArrayList<>();
+		String after = null;
+		do {
+			CursorPage<ContactSearchHit> page = contactSearchService.search(word, after, 1);
+			page.getItems().forEach(hit -> found.add(hit.getId()));
+			after = page.getNextCursor();
+		} while (after != null);
+
+		assertEquals(ids, found);
+		assertThrows(InvalidSearchCursor.class, () -> contactSearchService.search(word, "1_x", 1));
+	}
+
+	@Test
+	void takesQuerySyntaxAsPlainText() throws Exception {
+		String word = uniqueWord();
+		contactService.createContacts(
+				List.of(new Contact("Frank", "frank@example.com", Reason.QUESTION, word + " or near the door")));
+
+		assertEquals(1, contactSearchService.search("\"NEAR( OR * - " + word, null, null).getItems().size());
+	}
+
+	@Test
+	void readsMissingAndUnknownReasonsAsNull() throws Exception {
+		String word = uniqueWord();
+		List<Long> ids = contactService.createContacts(List.of(
+				new Contact("Gina", "gina@example.com", Reason.QUESTION, word + " without reason"),
+				new Contact("Hugo", "hugo@example.com", Reason.QUESTION, word + " with an unknown reason")));
+		jdbcTemplate.update("UPDATE contact SET reason = NULL WHERE id = ?", ids.get(0));
+		// The schema generated now checks the range, but older databases don't
+		jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("PRAGMA ignore_check_constraints = ON");
+				statement.executeUpdate("UPDATE contact SET reason = 99 WHERE id = " + ids.get(1));
+				statement.execute("PRAGMA ignore_check_constraints = OFF");
+			}
+			return null;
+		});
+
+		List<ContactSearchHit> hits = contactSearchService.search(word, null, null).getItems();
+
+		assertEquals(2, hits.size());
+		assertTrue(hits.stream().allMatch(hit -> hit.getReason() == null));
+	}
+
+	@Test
+	void backfillIndexesExistingContacts() throws Exception {
+		String word = uniqueWord();
+		contactService.createContacts(List.of(new Contact("Erin", "erin@example.com", Reason.QUESTION, word)));
+		jdbcTemplate.execute("DROP TRIGGER contact_fts_insert");
+		jdbcTemplate.execute("DROP TRIGGER contact_fts_update");
+		jdbcTemplate.execute("DROP TRIGGER contact_fts_delete");
+		jdbcTemplate.execute("DROP TABLE contact_fts");
+
+		ContactSearchService target = AopTestUtils.getTargetObject(contactSearchService);
+		target.createIndex();
+		assertTrue(contactSearchService.search(word, null, null).getItems().isEmpty());
+
+		target.backfillIndex();
+		assertEquals(1, contactSearchService.search(word, null, null).getItems().size());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM contact_fts_backfill", Integer.class));
+	}
+
+	private String uniqueWord() {
+		return "w" + UUID.randomUUID().toString().replace("-", "");
+	}
+}
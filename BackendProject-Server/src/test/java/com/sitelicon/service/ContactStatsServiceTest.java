@@ -0,0 +1,94 @@
+package com.sitelicon.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sitelicon.TestDatabase;
+import com.sitelicon.dto.ContactStats;
+import com.sitelicon.model.Contact;
+import com.sitelicon.model.Reason;
+import com.sitelicon.model.StatsBucket;
+
+/**
+ * Checks that the statistics of the contacts follow the contacts created,
+ * updated and deleted, before and after being saved to the rollup table. The
+ * tests run on a temporary database shared by the class, so they compare the
+ * counters before and after every change.
+ */
+@SpringBootTest
+class ContactStatsServiceTest {
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) {
+		TestDatabase.register(registry);
+	}
+
+	@Autowired
+	private ContactStatsService contactStatsService;
+
+	@Autowired
+	private ContactService contactService;
+
+	@Test
+	void followsCreatesUpdatesAndDeletes() throws Exception {
+		long questions = count(Reason.QUESTION);
+		long alerts = count(Reason.ALERT);
+
+		List<Long> ids = contactService.createContacts(
+				List.of(new Contact("Ana", "ana@example.com", Reason.QUESTION, "First"),
+						new Contact("Bob", "bob@example.com", Reason.QUESTION, "Second"),
+						new Contact("Carol", "carol@example.com", Reason.ALERT, "Third")));
+		assertEquals(questions + 2, count(Reason.QUESTION));
+		assertEquals(alerts + 1, count(Reason.ALERT));
+
+		contactStatsService.flush();
+		assertEquals(questions + 2, count(Reason.QUESTION));
+
+		Contact changes = new Contact();
+		changes.setReason(Reason.ALERT);
+		contactService.patchContact(ids.get(0), changes, null);
+		assertEquals(questions + 1, count(Reason.QUESTION));
+		assertEquals(alerts + 2, count(Reason.ALERT));
+
+		contactService.deleteContacts(ids);
+		contactStatsService.flush();
+		assertEquals(questions, count(Reason.QUESTION));
+		assertEquals(alerts, count(Reason.ALERT));
+	}
+
+	@Test
+	void rollsUpEveryBucketSize() throws Exception {
+		contactService.createContact(new Contact("Dave", "dave@example.com", Reason.INFORMATION, "Hello"));
+		contactStatsService.flush();
+
+		long minutes = total(StatsBucket.MINUTE);
+		assertEquals(minutes, total(StatsBucket.HOUR));
+		assertEquals(minutes, total(StatsBucket.DAY));
+	}
+
+	private long count(Reason reason) throws Exception {
+		return stats(StatsBucket.HOUR).stream().mapToLong(bucket -> bucket.getCounts().get(reason)).sum();
+	}
+
+	private long total(StatsBucket bucket) throws Exception {
+		return stats(bucket).stream().mapToLong(ContactStats::getTotal).sum();
+	}
+
+	/**
+	 * Retrieves the statistics of the current day, which include the contacts
+	 * created by the tests, so every bucket size covers the same range.
+	 */
+	private List<ContactStats> stats(StatsBucket bucket) throws Exception {
+		Instant from = Instant.ofEpochMilli(StatsBucket.DAY.startOf(System.currentTimeMillis()));
+		return contactStatsService.getStats(bucket, from, from.plus(Duration.ofDays(1)));
+	}
+}